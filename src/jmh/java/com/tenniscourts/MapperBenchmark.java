@@ -0,0 +1,109 @@
+package com.tenniscourts;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationDTO;
+import com.tenniscourts.reservations.ReservationMapper;
+import com.tenniscourts.reservations.ReservationMapperImpl;
+import com.tenniscourts.reservations.ReservationService;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleDTO;
+import com.tenniscourts.schedules.ScheduleMapper;
+import com.tenniscourts.schedules.ScheduleMapperImpl;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtDTO;
+import com.tenniscourts.tenniscourts.TennisCourtMapper;
+import com.tenniscourts.tenniscourts.TennisCourtMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * MapStruct mappers on lists the size of a court's schedule page and of a tournament weekend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"100", "10000"})
+    int size;
+
+    final ReservationMapper reservationMapper = new ReservationMapperImpl();
+
+    final ScheduleMapper scheduleMapper = new ScheduleMapperImpl();
+
+    final TennisCourtMapper tennisCourtMapper = new TennisCourtMapperImpl();
+
+    List<TennisCourt> tennisCourts;
+
+    List<Schedule> schedules;
+
+    List<Reservation> reservations;
+
+    @Setup
+    public void setUp() {
+        Guest guest = Guest.builder().name("Roger Federer").build();
+        guest.setId(1L);
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+
+        tennisCourts = new ArrayList<>(size);
+        schedules = new ArrayList<>(size);
+        reservations = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            TennisCourt tennisCourt = new TennisCourt("Court " + id);
+            tennisCourt.setId(id);
+            tennisCourts.add(tennisCourt);
+
+            Schedule schedule = Schedule.builder()
+                    .tennisCourt(tennisCourt)
+                    .startDateTime(start.plusHours(id))
+                    .endDateTime(start.plusHours(id + 1))
+                    .build();
+            schedule.setId(id);
+            schedules.add(schedule);
+
+            Reservation reservation = Reservation.builder()
+                    .guest(guest)
+                    .schedule(schedule)
+                    .value(ReservationService.RESERVATION_DEPOSIT)
+                    .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                    .build();
+            reservation.setId(id);
+            reservations.add(reservation);
+        }
+    }
+
+    @Benchmark
+    public List<ReservationDTO> mapReservations() {
+        return reservationMapper.map(reservations);
+    }
+
+    @Benchmark
+    public List<ScheduleDTO> mapSchedules() {
+        return scheduleMapper.map(schedules);
+    }
+
+    @Benchmark
+    public List<TennisCourtDTO> mapTennisCourts() {
+        return tennisCourts.stream().map(tennisCourtMapper::map).collect(Collectors.toList());
+    }
+}
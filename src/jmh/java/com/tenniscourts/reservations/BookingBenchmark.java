@@ -0,0 +1,152 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.TennisCourtApplication;
+import com.tenniscourts.schedules.CreateRecurringScheduleRequestDTO;
+import com.tenniscourts.schedules.FreeSlotDTO;
+import com.tenniscourts.schedules.ScheduleService;
+import com.tenniscourts.tenniscourts.TennisCourtDTO;
+import com.tenniscourts.tenniscourts.TennisCourtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Availability lookups and a full book-then-cancel cycle through the real services, on an embedded
+ * H2 database seeded with a month of hourly schedules for one court, once per reservation store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+
+    private static final Long GUEST_ID = 1L;
+
+    @Param({"jpa", "journal"})
+    String store;
+
+    ConfigurableApplicationContext context;
+
+    ScheduleService scheduleService;
+
+    ReservationService reservationService;
+
+    Long tennisCourtId;
+
+    LocalDate firstDay;
+
+    List<Long> scheduleIds;
+
+    final AtomicInteger slices = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException {
+        context = new SpringApplicationBuilder(TennisCourtApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + store + ";DB_CLOSE_DELAY=-1",
+                "--logging.level.root=warn",
+                "--tenniscourts.settlement.cron=-",
+                "--tenniscourts.archive.cron=-",
+                "--tenniscourts.reservations.store=" + store,
+                "--tenniscourts.journal.dir=" + Files.createTempDirectory("benchmark-journal"));
+        scheduleService = context.getBean(ScheduleService.class);
+        reservationService = context.getBean(ReservationService.class);
+
+        tennisCourtId = context.getBean(TennisCourtService.class)
+                .addTennisCourt(TennisCourtDTO.builder().name("Benchmark Court").build()).getId();
+        firstDay = LocalDate.now().plusDays(2);
+        scheduleService.addRecurringSchedules(CreateRecurringScheduleRequestDTO.builder()
+                .tennisCourtIds(Collections.singletonList(tennisCourtId))
+                .startDate(firstDay)
+                .endDate(firstDay.plusDays(29))
+                .daysOfWeek(EnumSet.allOf(DayOfWeek.class))
+                .openingTime(LocalTime.of(0, 0))
+                .closingTime(LocalTime.of(23, 0))
+                .build());
+
+        scheduleIds = new ArrayList<>();
+        for (int day = 0; day < 30; day++) {
+            scheduleService.findFreeSlots(tennisCourtId, firstDay.plusDays(day)).stream()
+                    .map(FreeSlotDTO::getScheduleId)
+                    .forEach(scheduleIds::add);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * Hands every benchmark thread its own slice of schedules so concurrent runs never book the same
+     * slot and only measure lock striping, not conflicts. Slices only overlap when there are more
+     * threads than schedules.
+     */
+    @State(Scope.Thread)
+    public static class ThreadSlots {
+
+        List<Long> scheduleIds;
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void claimSlice(BookingBenchmark benchmark, BenchmarkParams params) {
+            int threads = params.getThreads();
+            int size = benchmark.scheduleIds.size();
+            int sliceSize = Math.max(1, size / threads);
+            int from = Math.min(benchmark.slices.getAndIncrement() % threads * sliceSize, size - sliceSize);
+            scheduleIds = benchmark.scheduleIds.subList(from, Math.min(from + sliceSize, size));
+        }
+
+        Long nextScheduleId() {
+            next = (next + 1) % scheduleIds.size();
+            return scheduleIds.get(next);
+        }
+    }
+
+    @Benchmark
+    public List<FreeSlotDTO> findFreeSlotsOfCourt() {
+        return scheduleService.findFreeSlots(tennisCourtId, firstDay);
+    }
+
+    @Benchmark
+    public List<FreeSlotDTO> findFreeSlotsOfAllCourts() {
+        return scheduleService.findFreeSlots(null, firstDay);
+    }
+
+    @Benchmark
+    public ReservationDTO bookAndCancel(ThreadSlots slots) {
+        ReservationDTO reservation = reservationService.bookReservation(CreateReservationRequestDTO.builder()
+                .guestId(GUEST_ID)
+                .scheduleId(slots.nextScheduleId())
+                .build());
+        return reservationService.cancelReservation(reservation.getId());
+    }
+}
@@ -0,0 +1,49 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.schedules.Schedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refund computed on cancel and reschedule, once per branch of {@link RefundPolicy}: a day or more
+ * ahead the whole value is refunded, closer to the start nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefundValueBenchmark {
+
+    @Param({"48", "1"})
+    int hoursInAdvance;
+
+    Reservation reservation;
+
+    @Setup
+    public void setUp() {
+        reservation = Reservation.builder()
+                .schedule(Schedule.builder().startDateTime(LocalDateTime.now().plusHours(hoursInAdvance).plusMinutes(30)).build())
+                .value(ReservationService.RESERVATION_DEPOSIT)
+                .build();
+    }
+
+    @Benchmark
+    public BigDecimal getRefundValue() {
+        return RefundPolicy.refundValue(reservation);
+    }
+}
@@ -0,0 +1,238 @@
+package com.tenniscourts.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.tenniscourts.TennisCourtApplication;
+import com.tenniscourts.reservations.ReservationService;
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Boots the whole application on an in-memory H2 database and lets simulated guests book, cancel and
+ * reschedule over HTTP for a fixed time, then checks the stored reservations for broken invariants.
+ * <p>
+ * Settings are system properties ({@code ./gradlew loadTest -Ploadtest.guests=64}):
+ * <ul>
+ * <li>{@code loadtest.guests} concurrent guests, default 32</li>
+ * <li>{@code loadtest.warmupSeconds} / {@code loadtest.durationSeconds}, default 5 / 30</li>
+ * <li>{@code loadtest.mix} book, cancel and reschedule weights, default {@code 60,25,15}</li>
+ * <li>{@code loadtest.hotSlots} / {@code loadtest.hotFraction} share of requests aimed at the first few
+ * slots, default 10 / 0.3</li>
+ * <li>{@code loadtest.courts} / {@code loadtest.days} size of the schedule, default 4 / 14</li>
+ * <li>{@code loadtest.maxReservationsPerGuest} active reservations a guest keeps, default 4</li>
+ * </ul>
+ * The process exits with status 1 when an invariant is violated or a request fails with a server error.
+ */
+@Slf4j
+public class LoadTest {
+
+    private static final long FIRST_GUEST_ID = 1_000;
+
+    private final int guests = Integer.getInteger("loadtest.guests", 32);
+
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 5);
+
+    private final int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 30);
+
+    private final int[] mix = Arrays.stream(System.getProperty("loadtest.mix", "60,25,15").split(","))
+            .mapToInt(weight -> Integer.parseInt(weight.trim())).toArray();
+
+    private final int hotSlots = Integer.getInteger("loadtest.hotSlots", 10);
+
+    private final double hotFraction = Double.parseDouble(System.getProperty("loadtest.hotFraction", "0.3"));
+
+    private final int courts = Integer.getInteger("loadtest.courts", 4);
+
+    private final int days = Integer.getInteger("loadtest.days", 14);
+
+    private final int maxReservationsPerGuest = Integer.getInteger("loadtest.maxReservationsPerGuest", 4);
+
+    private ConfigurableApplicationContext context;
+
+    private LoadTestClient client;
+
+    private List<Long> scheduleIds;
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new LoadTest().run() ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        context = new SpringApplicationBuilder(TennisCourtApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--logging.level.root=warn",
+                "--tenniscourts.settlement.cron=-",
+                "--tenniscourts.archive.cron=-");
+        try {
+            client = new LoadTestClient(context.getEnvironment().getProperty("local.server.port", Integer.class));
+            this.seed();
+
+            Map<Long, List<Long>> reservationsByGuest = new HashMap<>();
+            this.drive(warmupSeconds, reservationsByGuest);
+            long start = System.nanoTime();
+            Map<String, OperationStats> stats = this.drive(durationSeconds, reservationsByGuest);
+            double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+            return this.report(stats, seconds, this.checkInvariants());
+        } finally {
+            context.close();
+        }
+    }
+
+    private void seed() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> guestRows = new ArrayList<>();
+        for (long guestId = FIRST_GUEST_ID; guestId < FIRST_GUEST_ID + guests; guestId++) {
+            guestRows.add(new Object[]{guestId, "Load Test Guest " + guestId});
+        }
+        jdbcTemplate.batchUpdate("insert into guest(id, name) values (?, ?)", guestRows);
+
+        List<Long> tennisCourtIds = new ArrayList<>();
+        for (int i = 1; i <= courts; i++) {
+            tennisCourtIds.add(client.post("/tennis-courts", Collections.singletonMap("name", "Load Test Court " + i)).locationId());
+        }
+
+        LocalDate firstDay = LocalDate.now().plusDays(2);
+        Map<String, Object> recurring = new LinkedHashMap<>();
+        recurring.put("tennisCourtIds", tennisCourtIds);
+        recurring.put("startDate", firstDay.toString());
+        recurring.put("endDate", firstDay.plusDays(days - 1).toString());
+        recurring.put("daysOfWeek", EnumSet.allOf(DayOfWeek.class));
+        recurring.put("openingTime", "07:00");
+        recurring.put("closingTime", "22:00");
+        client.post("/schedules/recurring", recurring);
+
+        scheduleIds = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            for (JsonNode slot : client.get("/schedules/free-slots?date=" + firstDay.plusDays(day)).getJson()) {
+                scheduleIds.add(slot.get("scheduleId").asLong());
+            }
+        }
+        log.warn("Seeded {} guests and {} schedules on {} courts", guests, scheduleIds.size(), courts);
+    }
+
+    private Map<String, OperationStats> drive(int seconds, Map<Long, List<Long>> reservationsByGuest) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(guests);
+        try {
+            List<Future<Map<String, OperationStats>>> results = new ArrayList<>();
+            for (long guestId = FIRST_GUEST_ID; guestId < FIRST_GUEST_ID + guests; guestId++) {
+                List<Long> reservations = reservationsByGuest.computeIfAbsent(guestId, id -> new ArrayList<>());
+                long id = guestId;
+                results.add(executor.submit(() -> this.simulateGuest(id, reservations, deadline)));
+            }
+
+            Map<String, OperationStats> total = newStats();
+            for (Future<Map<String, OperationStats>> result : results) {
+                result.get().forEach((operation, stats) -> total.get(operation).merge(stats));
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<String, OperationStats> simulateGuest(long guestId, List<Long> reservations, long deadline) {
+        Map<String, OperationStats> stats = newStats();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int totalWeight = mix[0] + mix[1] + mix[2];
+
+        while (System.nanoTime() < deadline) {
+            int roll = random.nextInt(totalWeight);
+            if (reservations.isEmpty() || (roll < mix[0] && reservations.size() < maxReservationsPerGuest)) {
+                Map<String, Object> request = new HashMap<>();
+                request.put("guestId", guestId);
+                request.put("scheduleId", this.pickSchedule(random));
+                LoadTestClient.Response response = this.timed(stats.get("book"), () -> client.post("/reservations", request));
+                if (response.isSuccessful()) {
+                    reservations.add(response.locationId());
+                }
+            } else if (roll < mix[0] + mix[1]) {
+                Long reservationId = reservations.remove(random.nextInt(reservations.size()));
+                this.timed(stats.get("cancel"), () -> client.put("/reservations/" + reservationId + "/cancel"));
+            } else {
+                Long reservationId = reservations.remove(random.nextInt(reservations.size()));
+                Long scheduleId = this.pickSchedule(random);
+                LoadTestClient.Response response = this.timed(stats.get("reschedule"),
+                        () -> client.put("/reservations/" + reservationId + "/reschedule/" + scheduleId));
+                reservations.add(response.isSuccessful() ? response.getJson().get("id").asLong() : reservationId);
+            }
+        }
+        return stats;
+    }
+
+    private Long pickSchedule(ThreadLocalRandom random) {
+        boolean hot = random.nextDouble() < hotFraction;
+        return scheduleIds.get(random.nextInt(hot ? Math.min(hotSlots, scheduleIds.size()) : scheduleIds.size()));
+    }
+
+    private LoadTestClient.Response timed(OperationStats stats, Supplier<LoadTestClient.Response> call) {
+        long start = System.nanoTime();
+        LoadTestClient.Response response = call.get();
+        stats.record(System.nanoTime() - start, response.getStatus());
+        return response;
+    }
+
+    private Map<String, Long> checkInvariants() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        int readyToPlay = ReservationStatus.READY_TO_PLAY.ordinal();
+        Map<String, Long> violations = new LinkedHashMap<>();
+        violations.put("double bookings", jdbcTemplate.queryForObject(
+                "select count(*) from (select schedule_id from reservation where reservation_status = ?"
+                        + " group by schedule_id having count(*) > 1)", Long.class, readyToPlay));
+        violations.put("negative value", jdbcTemplate.queryForObject(
+                "select count(*) from reservation where value < 0", Long.class));
+        violations.put("wrong refund", jdbcTemplate.queryForObject(
+                "select count(*) from reservation where (reservation_status = ? and refund_value is not null)"
+                        + " or (reservation_status in (?, ?) and (refund_value is null or refund_value <> ? or value <> 0))",
+                Long.class, readyToPlay, ReservationStatus.CANCELLED.ordinal(), ReservationStatus.RESCHEDULED.ordinal(),
+                ReservationService.RESERVATION_DEPOSIT));
+        return violations;
+    }
+
+    private boolean report(Map<String, OperationStats> stats, double seconds, Map<String, Long> violations) {
+        long operations = stats.values().stream().mapToLong(OperationStats::getCount).sum();
+        long bookings = stats.get("book").getSuccesses() + stats.get("reschedule").getSuccesses();
+        long errors = stats.values().stream().mapToLong(OperationStats::getErrors).sum();
+        long violationCount = violations.values().stream().mapToLong(Long::longValue).sum();
+
+        StringBuilder report = new StringBuilder(System.lineSeparator())
+                .append(String.format("%d guests, %.1f s, mix %s, %d hot slots at %.0f%%%n", guests, seconds,
+                        Arrays.toString(mix), hotSlots, hotFraction * 100))
+                .append(String.format("throughput %.1f ops/s, %.1f bookings/s%n", operations / seconds, bookings / seconds))
+                .append(OperationStats.header()).append(System.lineSeparator());
+        stats.values().forEach(operation -> report.append(operation.report()).append(System.lineSeparator()));
+        violations.forEach((invariant, count) -> report.append(String.format("%-16s %d%n", invariant, count)));
+        log.warn(report.toString());
+
+        return violationCount == 0 && errors == 0;
+    }
+
+    private static Map<String, OperationStats> newStats() {
+        Map<String, OperationStats> stats = new LinkedHashMap<>();
+        stats.put("book", new OperationStats("book"));
+        stats.put("cancel", new OperationStats("cancel"));
+        stats.put("reschedule", new OperationStats("reschedule"));
+        return stats;
+    }
+}
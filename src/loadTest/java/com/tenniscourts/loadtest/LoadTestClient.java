@@ -0,0 +1,94 @@
+package com.tenniscourts.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal JSON-over-HTTP client for the load test, so requests go through the same Tomcat, filters and
+ * controllers as real traffic.
+ */
+class LoadTestClient {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+
+    LoadTestClient(int port) {
+        this.baseUrl = "http://localhost:" + port;
+    }
+
+    Response get(String path) {
+        return send("GET", path, null);
+    }
+
+    Response post(String path, Object body) {
+        return send("POST", path, body);
+    }
+
+    Response put(String path) {
+        return send("PUT", path, null);
+    }
+
+    private Response send(String method, String path, Object body) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Accept", "application/json");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(OBJECT_MAPPER.writeValueAsBytes(body));
+                }
+            }
+
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            String content = in == null ? "" : read(in);
+            JsonNode json = content.isEmpty() ? null : OBJECT_MAPPER.readTree(content);
+            return new Response(status, json, connection.getHeaderField("Location"));
+        } catch (IOException ex) {
+            return new Response(-1, null, null);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Response {
+
+        private final int status;
+
+        private final JsonNode json;
+
+        private final String location;
+
+        boolean isSuccessful() {
+            return status >= 200 && status < 300;
+        }
+
+        Long locationId() {
+            return location == null ? null : Long.valueOf(location.substring(location.lastIndexOf('/') + 1));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.tenniscourts.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome counts and latencies of one operation type, recorded by a single guest thread and merged
+ * into the totals once the run is over.
+ */
+class OperationStats {
+
+    private final String name;
+
+    private long[] latencies = new long[1024];
+
+    private int count;
+
+    private long successes;
+
+    private long conflicts;
+
+    private long rejections;
+
+    private long errors;
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latencyNanos, int status) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+
+        if (status >= 200 && status < 300) {
+            successes++;
+        } else if (status == 409 || status == 422) {
+            conflicts++;
+        } else if (status >= 400 && status < 500) {
+            rejections++;
+        } else {
+            errors++;
+        }
+    }
+
+    void merge(OperationStats other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, count + other.count);
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        successes += other.successes;
+        conflicts += other.conflicts;
+        rejections += other.rejections;
+        errors += other.errors;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getSuccesses() {
+        return successes;
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    String report() {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return String.format("%-12s %9d %9d %9d %9d %9d %9.2f %9.2f %9.2f", name, count, successes, conflicts,
+                rejections, errors, percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999));
+    }
+
+    static String header() {
+        return String.format("%-12s %9s %9s %9s %9s %9s %9s %9s %9s", "operation", "count", "ok", "conflict",
+                "rejected", "error", "p50 ms", "p99 ms", "p999 ms");
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,23 @@
+package com.tenniscourts.archive;
+
+import com.tenniscourts.config.BaseRestController;
+import io.swagger.annotations.ApiOperation;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/archives")
+@AllArgsConstructor
+public class ArchiveController extends BaseRestController {
+
+    private final ArchiveJob archiveJob;
+
+    @ApiOperation("Moves finished schedules and their reservations to the archive tables")
+    @PostMapping
+    public ResponseEntity<ArchiveReportDTO> archive() {
+        return ResponseEntity.ok(archiveJob.run());
+    }
+}
@@ -0,0 +1,182 @@
+package com.tenniscourts.archive;
+
+import com.tenniscourts.config.cache.TennisCourtCacheEvictor;
+import com.tenniscourts.exceptions.BusinessException;
+import com.tenniscourts.reservations.ReservationService;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.SlotAvailabilityIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the tables that bookings work on small by moving schedules that ended more than
+ * {@code tenniscourts.archive.keep-days} ago, together with their reservations, into
+ * {@code schedule_archive} and {@code reservation_archive}.
+ * <p>
+ * Only schedules whose reservations are all settled, i.e. none is still {@code READY_TO_PLAY}, are
+ * moved. They are taken in id order, one chunk at a time, and each chunk is copied and deleted in a
+ * single transaction, so an interrupted run leaves every schedule either hot or archived and the next
+ * run simply continues with what is left. Reservation changes are held meanwhile, and schedules booked
+ * by a change that is not in the database yet stay for the next run.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class ArchiveJob {
+
+    private static final String FIND_ARCHIVABLE = "select s.id, s.tennis_court_id from schedule s"
+            + " where s.end_date_time < :cutoff and s.id > :afterId"
+            + " and not exists (select 1 from reservation r where r.schedule_id = s.id and r.reservation_status = :readyToPlay)"
+            + " order by s.id limit :limit";
+
+    private static final String RESERVATION_COLUMNS = "id, guest_id, schedule_id, value, reservation_status, refund_value,"
+            + " check_in_date_time, ip_number_create, ip_number_update, user_create, user_update, date_create, date_update";
+
+    private static final String SCHEDULE_COLUMNS = "id, tennis_court_id, start_date_time, end_date_time, version,"
+            + " ip_number_create, ip_number_update, user_create, user_update, date_create, date_update";
+
+    private static final String COPY_RESERVATIONS = "insert into reservation_archive (" + RESERVATION_COLUMNS + ")"
+            + " select " + RESERVATION_COLUMNS + " from reservation where schedule_id in (:scheduleIds)";
+
+    private static final String DELETE_RESERVATIONS = "delete from reservation where schedule_id in (:scheduleIds)";
+
+    private static final String COPY_SCHEDULES = "insert into schedule_archive (" + SCHEDULE_COLUMNS + ")"
+            + " select " + SCHEDULE_COLUMNS + " from schedule where id in (:scheduleIds)";
+
+    private static final String DELETE_SCHEDULES = "delete from schedule where id in (:scheduleIds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+
+    private final TennisCourtCacheEvictor tennisCourtCacheEvictor;
+
+    private final ReservationService reservationService;
+
+    private final int keepDays;
+
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ArchiveJob(NamedParameterJdbcTemplate jdbcTemplate,
+                      PlatformTransactionManager transactionManager,
+                      SlotAvailabilityIndex slotAvailabilityIndex,
+                      TennisCourtCacheEvictor tennisCourtCacheEvictor,
+                      ReservationService reservationService,
+                      @Value("${tenniscourts.archive.keep-days:180}") int keepDays,
+                      @Value("${tenniscourts.archive.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
+        this.tennisCourtCacheEvictor = tennisCourtCacheEvictor;
+        this.reservationService = reservationService;
+        this.keepDays = keepDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${tenniscourts.archive.cron:0 30 4 * * *}")
+    public void archiveNightly() {
+        try {
+            ArchiveReportDTO report = run();
+            log.info("Archived {} schedules and {} reservations in {} ms", report.getSchedules(),
+                    report.getReservations(), report.getElapsedMillis());
+        } catch (BusinessException ex) {
+            log.warn("Skipping nightly archiving: {}", ex.getMessage());
+        }
+    }
+
+    public ArchiveReportDTO run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("Archiving is already running.");
+        }
+        try {
+            return archive(LocalDateTime.now().minusDays(keepDays));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ArchiveReportDTO archive(LocalDateTime cutoff) {
+        long start = System.nanoTime();
+        int chunks = 0;
+        long schedules = 0;
+        long reservations = 0;
+        long afterId = 0;
+
+        Map<Long, Long> chunk;
+        while (!(chunk = this.findArchivable(cutoff, afterId)).isEmpty()) {
+            afterId = chunk.keySet().stream().mapToLong(Long::longValue).max().getAsLong();
+            reservations += this.move(chunk);
+            schedules += chunk.size();
+            chunks++;
+        }
+
+        return ArchiveReportDTO.builder()
+                .cutoffDateTime(cutoff)
+                .chunks(chunks)
+                .schedules(schedules)
+                .reservations(reservations)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
+    }
+
+    /**
+     * Tennis court ids of the next archivable schedules, by schedule id.
+     */
+    private Map<Long, Long> findArchivable(LocalDateTime cutoff, long afterId) {
+        Map<Long, Long> tennisCourtIdsBySchedule = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_ARCHIVABLE, new MapSqlParameterSource()
+                        .addValue("cutoff", Timestamp.valueOf(cutoff))
+                        .addValue("afterId", afterId)
+                        .addValue("readyToPlay", ReservationStatus.READY_TO_PLAY.ordinal())
+                        .addValue("limit", chunkSize),
+                rs -> {
+                    tennisCourtIdsBySchedule.put(rs.getLong(1), rs.getLong(2));
+                });
+        return tennisCourtIdsBySchedule;
+    }
+
+    /**
+     * Moves the schedules of the chunk and drops those that are booked after all from it.
+     */
+    private int move(Map<Long, Long> chunk) {
+        return transactionTemplate.execute(status -> {
+            reservationService.holdReservationChanges();
+            chunk.keySet().removeAll(reservationService.findBookedScheduleIds(chunk.keySet()));
+            if (chunk.isEmpty()) {
+                return 0;
+            }
+
+            List<Long> scheduleIds = new ArrayList<>(chunk.keySet());
+            MapSqlParameterSource parameters = new MapSqlParameterSource("scheduleIds", scheduleIds);
+            int reservations = jdbcTemplate.update(COPY_RESERVATIONS, parameters);
+            jdbcTemplate.update(DELETE_RESERVATIONS, parameters);
+            jdbcTemplate.update(COPY_SCHEDULES, parameters);
+            jdbcTemplate.update(DELETE_SCHEDULES, parameters);
+
+            slotAvailabilityIndex.removeSchedules(scheduleIds);
+            tennisCourtCacheEvictor.evictSchedules(new HashSet<>(chunk.values()));
+            return reservations;
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.tenniscourts.archive;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveReportDTO {
+
+    @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime cutoffDateTime;
+
+    private int chunks;
+
+    private long schedules;
+
+    private long reservations;
+
+    private long elapsedMillis;
+
+}
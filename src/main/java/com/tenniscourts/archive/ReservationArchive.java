@@ -0,0 +1,50 @@
+package com.tenniscourts.archive;
+
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A reservation of an archived schedule, moved out of {@code reservation} by the {@link ArchiveJob}
+ * together with its {@link ScheduleArchive}.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_reservation_archive_schedule", columnList = "scheduleId"))
+@Getter
+@NoArgsConstructor
+public class ReservationArchive {
+
+    @Id
+    private Long id;
+
+    private Long guestId;
+
+    private Long scheduleId;
+
+    private BigDecimal value;
+
+    private ReservationStatus reservationStatus;
+
+    private BigDecimal refundValue;
+
+    private LocalDateTime checkInDateTime;
+
+    private String ipNumberCreate;
+
+    private String ipNumberUpdate;
+
+    private Long userCreate;
+
+    private Long userUpdate;
+
+    private LocalDateTime dateCreate;
+
+    private LocalDateTime dateUpdate;
+}
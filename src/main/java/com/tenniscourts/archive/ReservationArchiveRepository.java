@@ -0,0 +1,17 @@
+package com.tenniscourts.archive;
+
+import com.tenniscourts.reservations.ReservationView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ReservationArchiveRepository extends JpaRepository<ReservationArchive, Long> {
+
+    @Query("select new com.tenniscourts.reservations.ReservationView(r.id, r.reservationStatus, r.value, r.refundValue, " +
+            "r.checkInDateTime, r.guestId, s.id, s.startDateTime, s.endDateTime, t.id, t.name) " +
+            "from ReservationArchive r, ScheduleArchive s, TennisCourt t " +
+            "where s.id = r.scheduleId and t.id = s.tennisCourtId and r.id = :id")
+    Optional<ReservationView> findViewById(@Param("id") Long id);
+}
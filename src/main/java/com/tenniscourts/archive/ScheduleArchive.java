@@ -0,0 +1,44 @@
+package com.tenniscourts.archive;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A schedule that ended long ago, moved out of {@code schedule} by the {@link ArchiveJob} with all of
+ * its columns. Rows are only ever written with SQL, this mapping makes them queryable.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_schedule_archive_tennis_court_start", columnList = "tennisCourtId, startDateTime"))
+@Getter
+@NoArgsConstructor
+public class ScheduleArchive {
+
+    @Id
+    private Long id;
+
+    private Long tennisCourtId;
+
+    private LocalDateTime startDateTime;
+
+    private LocalDateTime endDateTime;
+
+    private Long version;
+
+    private String ipNumberCreate;
+
+    private String ipNumberUpdate;
+
+    private Long userCreate;
+
+    private Long userUpdate;
+
+    private LocalDateTime dateCreate;
+
+    private LocalDateTime dateUpdate;
+}
@@ -0,0 +1,71 @@
+package com.tenniscourts.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.function.Supplier;
+
+/**
+ * Who is changing data and from where. Resolved once per request by {@link AuditContextFilter} and
+ * bound to the handling thread; work outside a request is attributed to the system user and the
+ * address of this server, which is looked up only once.
+ */
+@Getter
+@AllArgsConstructor
+public class AuditContext {
+
+    private static final ThreadLocal<AuditContext> CURRENT = new ThreadLocal<>();
+
+    private final Long userId;
+
+    private final String ipNumber;
+
+    public static AuditContext current() {
+        AuditContext auditContext = CURRENT.get();
+        return auditContext != null ? auditContext : SystemContext.INSTANCE;
+    }
+
+    /**
+     * Wraps work handed to another thread so it is audited like the request that hands it over.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        AuditContext auditContext = CURRENT.get();
+        if (auditContext == null) {
+            return work;
+        }
+        return () -> {
+            bind(auditContext);
+            try {
+                return work.get();
+            } finally {
+                clear();
+            }
+        };
+    }
+
+    static void bind(AuditContext auditContext) {
+        CURRENT.set(auditContext);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    @Slf4j
+    private static final class SystemContext {
+
+        private static final AuditContext INSTANCE = new AuditContext(CustomAuditEntityListener.USER_SYSTEM_ID, localHostAddress());
+
+        private static String localHostAddress() {
+            try {
+                return InetAddress.getLocalHost().getHostAddress();
+            } catch (UnknownHostException ex) {
+                log.warn("Could not resolve the local host address, auditing system changes as loopback", ex);
+                return InetAddress.getLoopbackAddress().getHostAddress();
+            }
+        }
+    }
+}
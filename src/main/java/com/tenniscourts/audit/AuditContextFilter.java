@@ -0,0 +1,75 @@
+package com.tenniscourts.audit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Binds the {@link AuditContext} of every request. The {@code X-User-Id} and {@code X-Forwarded-For}
+ * headers are only taken from the proxies listed in {@code tenniscourts.audit.trusted-proxies}, which
+ * set them after authenticating the caller; anyone else is audited as the system user at the address
+ * the request came from.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AuditContextFilter extends OncePerRequestFilter {
+
+    static final String USER_ID_HEADER = "X-User-Id";
+
+    static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final Set<String> trustedProxies;
+
+    public AuditContextFilter(@Value("${tenniscourts.audit.trusted-proxies:}") String[] trustedProxies) {
+        this.trustedProxies = Arrays.stream(trustedProxies)
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean trusted = trustedProxies.contains(request.getRemoteAddr());
+        AuditContext.bind(new AuditContext(trusted ? userId(request) : CustomAuditEntityListener.USER_SYSTEM_ID,
+                trusted ? clientIpNumber(request) : request.getRemoteAddr()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            AuditContext.clear();
+        }
+    }
+
+    private static Long userId(HttpServletRequest request) {
+        String userId = request.getHeader(USER_ID_HEADER);
+        if (StringUtils.hasText(userId)) {
+            try {
+                return Long.valueOf(userId.trim());
+            } catch (NumberFormatException ex) {
+                return CustomAuditEntityListener.USER_SYSTEM_ID;
+            }
+        }
+        return CustomAuditEntityListener.USER_SYSTEM_ID;
+    }
+
+    private static String clientIpNumber(HttpServletRequest request) {
+        String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (StringUtils.hasText(forwardedFor)) {
+            int comma = forwardedFor.indexOf(',');
+            return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,146 @@
+package com.tenniscourts.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Records committed entity changes to the {@code tenniscourts.audit} log without slowing down the
+ * request that made them. Changes are captured with the current {@link AuditContext} and handed to a
+ * bounded queue drained by a single background thread; when the queue is full records are dropped and
+ * counted rather than blocking the writer.
+ */
+@Slf4j(topic = "tenniscourts.audit")
+@Component
+@ConditionalOnProperty(name = "tenniscourts.audit.trail.enabled", havingValue = "true")
+public class AuditTrail implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final BlockingQueue<String> records;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread writer = new Thread(this::drain, "audit-trail");
+
+    private volatile boolean running = true;
+
+    public AuditTrail(EntityManagerFactory entityManagerFactory,
+                      @Value("${tenniscourts.audit.trail.queue-capacity:10000}") int queueCapacity) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.records = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public long getDroppedRecords() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record("INSERT", event.getPersister(), event.getId(), "");
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        int[] dirtyProperties = event.getDirtyProperties();
+        String changes = dirtyProperties == null ? "" : Arrays.stream(dirtyProperties)
+                .mapToObj(index -> event.getPersister().getPropertyNames()[index])
+                .collect(Collectors.joining(",", " changed=[", "]"));
+        record("UPDATE", event.getPersister(), event.getId(), changes);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record("DELETE", event.getPersister(), event.getId(), "");
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    /**
+     * Still abstract in this Hibernate version, which only calls {@link #requiresPostCommitHandling}.
+     */
+    @Deprecated
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private void record(String action, EntityPersister persister, Serializable id, String changes) {
+        AuditContext auditContext = AuditContext.current();
+        String record = LocalDateTime.now() + " " + action + " " + persister.getEntityName() + "#" + id
+                + " user=" + auditContext.getUserId() + " ip=" + auditContext.getIpNumber() + changes;
+        if (!records.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        while (running || !records.isEmpty()) {
+            try {
+                String record = records.poll(1, TimeUnit.SECONDS);
+                if (record != null) {
+                    log.info(record);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
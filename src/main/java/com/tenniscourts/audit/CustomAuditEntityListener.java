@@ -4,8 +4,6 @@ import com.tenniscourts.config.persistence.BaseEntity;
 
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -14,32 +12,32 @@ public class CustomAuditEntityListener {
     public final static Long USER_SYSTEM_ID = 1L;
 
     @PreUpdate
-    public void preUpdate(BaseEntity baseEntity) throws UnknownHostException {
+    public void preUpdate(BaseEntity baseEntity) {
+        AuditContext auditContext = AuditContext.current();
 
         baseEntity.setDateUpdate(LocalDateTime.now());
-        if (Objects.isNull(baseEntity.getUserUpdate())) {
-            baseEntity.setUserUpdate(USER_SYSTEM_ID);
-        }
-        if (Objects.isNull(baseEntity.getIpNumberUpdate())) {
-            baseEntity.setIpNumberUpdate(InetAddress.getLocalHost().getHostAddress());
-        }
+        baseEntity.setUserUpdate(auditContext.getUserId());
+        baseEntity.setIpNumberUpdate(auditContext.getIpNumber());
     }
 
     @PrePersist
-    public void prePersist(BaseEntity baseEntity) throws UnknownHostException {
-        baseEntity.setDateUpdate(LocalDateTime.now());
+    public void prePersist(BaseEntity baseEntity) {
+        AuditContext auditContext = AuditContext.current();
+        LocalDateTime now = LocalDateTime.now();
+
+        baseEntity.setDateUpdate(now);
         if (Objects.isNull(baseEntity.getUserUpdate())) {
-            baseEntity.setUserUpdate(USER_SYSTEM_ID);
+            baseEntity.setUserUpdate(auditContext.getUserId());
         }
-        baseEntity.setDateCreate(LocalDateTime.now());
+        baseEntity.setDateCreate(now);
         if (Objects.isNull(baseEntity.getUserCreate())) {
-            baseEntity.setUserCreate(USER_SYSTEM_ID);
+            baseEntity.setUserCreate(auditContext.getUserId());
         }
-        if (Objects.isNull(baseEntity.getIpNumberCreate())) {
-            baseEntity.setIpNumberUpdate(InetAddress.getLocalHost().getHostAddress());
+        if (Objects.isNull(baseEntity.getIpNumberUpdate())) {
+            baseEntity.setIpNumberUpdate(auditContext.getIpNumber());
         }
         if (Objects.isNull(baseEntity.getIpNumberCreate())) {
-            baseEntity.setIpNumberCreate(InetAddress.getLocalHost().getHostAddress());
+            baseEntity.setIpNumberCreate(auditContext.getIpNumber());
         }
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,75 @@
 package com.tenniscourts.config;
 
+import com.tenniscourts.config.cache.ResourceVersions.ResourceVersion;
+import com.tenniscourts.config.serialization.SmileConfig;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 import springfox.documentation.annotations.ApiIgnore;
 
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @ApiIgnore
 public class BaseRestController {
 
-  protected URI locationByEntity(Long entityId){
-        return ServletUriComponentsBuilder.fromCurrentRequest().path(
-                "/{id}").buildAndExpand(entityId).toUri();
+    /**
+     * Builds the location of a created entity from the current request. The request is read here, on
+     * the servlet thread, so the returned function can be applied on whichever thread creates the entity.
+     */
+    protected Function<Long, URI> locationByEntity() {
+        UriComponentsBuilder location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}");
+        return entityId -> location.buildAndExpand(entityId).toUri();
+    }
+
+    /**
+     * Sets the ETag and Last-Modified headers of the version and, when the client already has it,
+     * answers 304 right away, before any query or mapping runs. JSON and Smile get different ETags and
+     * the response varies by {@code Accept}, so no cache hands one format to a client asking for the other.
+     */
+    protected <T> CompletableFuture<ResponseEntity<T>> conditional(WebRequest request, ResourceVersion version,
+                                                                    Supplier<CompletableFuture<ResponseEntity<T>>> response) {
+        if (request instanceof ServletWebRequest && ((ServletWebRequest) request).getResponse() != null) {
+            ((ServletWebRequest) request).getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        ResourceVersion representationVersion = version.of(representation(request));
+        if (request.checkNotModified(representationVersion.getETag(), representationVersion.getLastModified())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return response.get();
+    }
+
+    /**
+     * The format the response is written in, picked like the message converters do: Smile only when
+     * the client prefers it to JSON.
+     */
+    private static String representation(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "json";
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            for (MediaType mediaType : mediaTypes) {
+                if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                    return "json";
+                }
+                if (mediaType.includes(SmileConfig.SMILE)) {
+                    return "smile";
+                }
+            }
+        } catch (InvalidMediaTypeException ex) {
+            return "json";
+        }
+        return "json";
     }
 }
@@ -0,0 +1,201 @@
+package com.tenniscourts.config.async;
+
+import com.tenniscourts.audit.AuditContext;
+import com.tenniscourts.config.diagnostics.RequestSqlStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs controller work off the servlet threads, so a request waiting for the database holds a slot
+ * here instead of a Tomcat thread and slow clients only cost an idle connection.
+ * <p>
+ * At most {@code tenniscourts.web.executor.max-concurrency} tasks run at once, which is what the
+ * connection pool is sized after, and up to {@code tenniscourts.web.executor.queue-capacity} wait for
+ * their turn; past that, requests are rejected with 503. On JDK 21 and later every task gets a virtual
+ * thread of its own, with a semaphore bounding how many run, unless
+ * {@code tenniscourts.web.executor.virtual-threads} is turned off; otherwise they run on a pool of
+ * platform threads. Tasks run with the audit context and SQL statistics of the request that submitted them.
+ */
+@Slf4j
+@Component
+public class ControllerExecutor implements MeterBinder {
+
+    private final Executor executor;
+
+    private final String threadType;
+
+    @Autowired
+    public ControllerExecutor(@Value("${tenniscourts.web.executor.max-concurrency:16}") int maxConcurrency,
+                              @Value("${tenniscourts.web.executor.queue-capacity:5000}") int queueCapacity,
+                              @Value("${tenniscourts.web.executor.virtual-threads:true}") boolean virtualThreads) {
+        this(maxConcurrency, queueCapacity, virtualThreads ? virtualThreadFactory() : null);
+    }
+
+    /**
+     * Starts a thread from the given factory for every task, or pools platform threads without one.
+     */
+    ControllerExecutor(int maxConcurrency, int queueCapacity, ThreadFactory perTaskThreads) {
+        if (perTaskThreads != null) {
+            this.threadType = "virtual";
+            this.executor = new PerTaskExecutor(maxConcurrency, queueCapacity, perTaskThreads);
+        } else {
+            this.threadType = "platform";
+            AtomicInteger threads = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "api-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+        log.info("Running controllers on up to {} {} threads with {} queued requests", maxConcurrency, threadType, queueCapacity);
+    }
+
+    /**
+     * Runs the work on this executor; throws {@link RejectedExecutionException} right away when the
+     * queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(RequestSqlStats.propagate(AuditContext.propagate(work)), executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) executor).shutdown();
+        } else {
+            ((PerTaskExecutor) executor).shutdown();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tenniscourts.web.executor.queued", this, ControllerExecutor::queued)
+                .description("Requests waiting for a controller thread")
+                .tag("threads", threadType)
+                .register(registry);
+        Gauge.builder("tenniscourts.web.executor.active", this, ControllerExecutor::active)
+                .description("Requests being handled by a controller thread")
+                .tag("threads", threadType)
+                .register(registry);
+    }
+
+    private int queued() {
+        return executor instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) executor).getQueue().size() : ((PerTaskExecutor) executor).queue.size();
+    }
+
+    private int active() {
+        return executor instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) executor).getActiveCount() : ((PerTaskExecutor) executor).active();
+    }
+
+    /**
+     * {@code Thread.ofVirtual().name("api-", 1).factory()}, looked up reflectively so the application
+     * still builds and runs on Java 8.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "api-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            log.info("Virtual threads need JDK 21 or later, falling back to platform threads");
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new thread for every task while a permit is free and queues the task otherwise. Whoever
+     * queues a task or returns a permit starts queued tasks afterwards, so none is left behind.
+     */
+    private static final class PerTaskExecutor implements Executor {
+
+        private final int maxConcurrency;
+
+        private final Semaphore permits;
+
+        private final Queue<Runnable> queue;
+
+        private final ThreadFactory threadFactory;
+
+        private volatile boolean shutdown;
+
+        PerTaskExecutor(int maxConcurrency, int queueCapacity, ThreadFactory threadFactory) {
+            this.maxConcurrency = maxConcurrency;
+            this.permits = new Semaphore(maxConcurrency);
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Controller executor is shut down.");
+            }
+            if (permits.tryAcquire()) {
+                this.start(task);
+            } else if (queue.offer(task)) {
+                this.startQueued();
+            } else {
+                throw new RejectedExecutionException("Too many requests waiting for a controller thread.");
+            }
+        }
+
+        void shutdown() {
+            shutdown = true;
+        }
+
+        int active() {
+            return maxConcurrency - permits.availablePermits();
+        }
+
+        private void startQueued() {
+            while (!queue.isEmpty() && permits.tryAcquire()) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    permits.release();
+                } else {
+                    this.start(task);
+                }
+            }
+        }
+
+        private void start(Runnable task) {
+            try {
+                threadFactory.newThread(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                        this.startQueued();
+                    }
+                }).start();
+            } catch (RuntimeException | Error ex) {
+                permits.release();
+                throw ex;
+            }
+        }
+    }
+}
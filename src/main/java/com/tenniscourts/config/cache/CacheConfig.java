@@ -0,0 +1,51 @@
+package com.tenniscourts.config.cache;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-through caches for court and schedule DTOs, backed by Caffeine and sized through
+ * {@code spring.cache.caffeine.spec}. The cache advice runs before the transactional one so a hit
+ * never opens a transaction or borrows a connection. The views of a single court are
+ * {@link VersionedCache versioned} against {@link ResourceVersions}.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE + 1)
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    public static final String TENNIS_COURTS = "tennisCourts";
+
+    public static final String TENNIS_COURT_SCHEDULES = "tennisCourtSchedules";
+
+    public static final String TENNIS_COURT_DETAILS = "tennisCourtDetails";
+
+    private static final List<String> VERSIONED_CACHES = Arrays.asList(TENNIS_COURT_SCHEDULES, TENNIS_COURT_DETAILS);
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties, ResourceVersions resourceVersions) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache createCaffeineCache(String name) {
+                Cache cache = super.createCaffeineCache(name);
+                return VERSIONED_CACHES.contains(name) ? new VersionedCache(cache, resourceVersions::counterOfTennisCourt) : cache;
+            }
+        };
+        if (StringUtils.hasText(cacheProperties.getCaffeine().getSpec())) {
+            cacheManager.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+        }
+        cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tenniscourts.config.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tenniscourts.config.BaseRestController;
+import io.swagger.annotations.ApiOperation;
+import lombok.AllArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/caches")
+@AllArgsConstructor
+public class CacheController extends BaseRestController {
+
+    private final CacheManager cacheManager;
+
+    @ApiOperation("Shows hit and miss statistics of the read-through caches")
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(cache -> cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)
+                .map(cache -> {
+                    com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache =
+                            (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+                    CacheStats stats = nativeCache.stats();
+                    return CacheStatsDTO.builder()
+                            .name(cache.getName())
+                            .size(nativeCache.estimatedSize())
+                            .hitCount(stats.hitCount())
+                            .missCount(stats.missCount())
+                            .hitRate(stats.hitRate())
+                            .evictionCount(stats.evictionCount())
+                            .build();
+                })
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.tenniscourts.config.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO {
+
+    private String name;
+
+    private long size;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private double hitRate;
+
+    private long evictionCount;
+
+}
@@ -0,0 +1,78 @@
+package com.tenniscourts.config.cache;
+
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Versions of the court and schedule views, for conditional GETs answered without any database work.
+ * <p>
+ * Every court has a counter that {@link TennisCourtCacheEvictor} bumps after a change to its schedules
+ * commits, and the schedule listings share one counter bumped on any such change. ETags combine the
+ * counter with the start time of this node, so they are never mistaken for those of another node or
+ * of a previous run. Last-Modified has whole seconds only, so it is moved forward by at least a second
+ * on each change to stay usable for clients that only send {@code If-Modified-Since}.
+ */
+@Component
+public class ResourceVersions {
+
+    private final String node = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final Version initial = new Version(0, Instant.now().truncatedTo(ChronoUnit.SECONDS).toEpochMilli());
+
+    private final ConcurrentMap<Long, Version> tennisCourts = new ConcurrentHashMap<>();
+
+    private final AtomicReference<Version> schedules = new AtomicReference<>(initial);
+
+    public ResourceVersion ofTennisCourt(Long tennisCourtId) {
+        Version version = tennisCourts.getOrDefault(tennisCourtId, initial);
+        return new ResourceVersion(eTag("court-" + tennisCourtId, version), version.getLastModified());
+    }
+
+    public ResourceVersion ofSchedules() {
+        Version version = schedules.get();
+        return new ResourceVersion(eTag("schedules", version), version.getLastModified());
+    }
+
+    long counterOfTennisCourt(Object tennisCourtId) {
+        return tennisCourts.getOrDefault(tennisCourtId, initial).getCounter();
+    }
+
+    void tennisCourtChanged(Long tennisCourtId) {
+        tennisCourts.compute(tennisCourtId, (id, version) -> (version == null ? initial : version).next());
+        schedules.updateAndGet(Version::next);
+    }
+
+    private String eTag(String resource, Version version) {
+        return "W/\"" + node + "-" + resource + "-" + version.getCounter() + "\"";
+    }
+
+    @Value
+    public static class ResourceVersion {
+        String eTag;
+        long lastModified;
+
+        /**
+         * The same version of another representation of the resource, such as another media type.
+         */
+        public ResourceVersion of(String representation) {
+            return new ResourceVersion(eTag.substring(0, eTag.length() - 1) + "-" + representation + "\"", lastModified);
+        }
+    }
+
+    @Value
+    private static class Version {
+        long counter;
+        long lastModified;
+
+        Version next() {
+            long now = Instant.now().truncatedTo(ChronoUnit.SECONDS).toEpochMilli();
+            return new Version(counter + 1, Math.max(now, lastModified + 1000));
+        }
+    }
+}
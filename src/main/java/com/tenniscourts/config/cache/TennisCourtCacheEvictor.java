@@ -0,0 +1,47 @@
+package com.tenniscourts.config.cache;
+
+import lombok.AllArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+import static com.tenniscourts.config.persistence.TransactionCallbacks.afterCommit;
+
+/**
+ * Evicts the cached views of a court once the transaction that changed it commits and moves their
+ * {@link ResourceVersions} on. A reader that loaded the court before the commit may still try to put
+ * the old view back after the eviction; {@link VersionedCache} drops that put as the version moved.
+ */
+@Component
+@AllArgsConstructor
+public class TennisCourtCacheEvictor {
+
+    private final CacheManager cacheManager;
+
+    private final ResourceVersions resourceVersions;
+
+    public void evictSchedules(Long tennisCourtId) {
+        afterCommit(() -> evict(tennisCourtId));
+    }
+
+    public void evictSchedules(Collection<Long> tennisCourtIds) {
+        afterCommit(() -> tennisCourtIds.forEach(this::evict));
+    }
+
+    private void evict(Long tennisCourtId) {
+        // before evicting, so a view loaded before the commit is refused by the cache instead of being
+        // stored again, where it would go out under the new ETag
+        resourceVersions.tennisCourtChanged(tennisCourtId);
+        evict(CacheConfig.TENNIS_COURT_SCHEDULES, tennisCourtId);
+        evict(CacheConfig.TENNIS_COURT_DETAILS, tennisCourtId);
+    }
+
+    private void evict(String cacheName, Long tennisCourtId) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(tennisCourtId);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.tenniscourts.config.cache;
+
+import lombok.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache of court views that keeps the {@link ResourceVersions} counter of the court with every entry.
+ * <p>
+ * A load through {@link #get(Object, Callable)} reads the counter before calling the loader and only
+ * caches the value if the counter has not moved since, so a reader that loaded the court before a
+ * change committed cannot put the old view back after the eviction. Entries stored under an older
+ * counter are treated as misses. The cached methods use {@code @Cacheable(sync = true)} so that every
+ * load goes through the loader; a plain {@link #put(Object, Object)} is stored under the current counter.
+ */
+class VersionedCache implements Cache {
+
+    private final Cache cache;
+
+    private final ToLongFunction<Object> versions;
+
+    VersionedCache(Cache cache, ToLongFunction<Object> versions) {
+        this.cache = cache;
+        this.versions = versions;
+    }
+
+    @Override
+    public String getName() {
+        return cache.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return cache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return this.get(key, versions.applyAsLong(key));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = this.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        if (type != null && !type.isInstance(wrapper.get())) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + wrapper.get());
+        }
+        return (T) wrapper.get();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        long version = versions.applyAsLong(key);
+        ValueWrapper wrapper = this.get(key, version);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+        if (version == versions.applyAsLong(key)) {
+            cache.put(key, new Entry(version, value));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        cache.put(key, new Entry(versions.applyAsLong(key), value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = this.get(key);
+        if (existing == null) {
+            this.put(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    private ValueWrapper get(Object key, long version) {
+        ValueWrapper wrapper = cache.get(key);
+        if (wrapper != null && wrapper.get() instanceof Entry && ((Entry) wrapper.get()).getVersion() == version) {
+            return new SimpleValueWrapper(((Entry) wrapper.get()).getValue());
+        }
+        return null;
+    }
+
+    @Value
+    private static class Entry {
+        long version;
+        Object value;
+    }
+}
@@ -0,0 +1,30 @@
+package com.tenniscourts.config.diagnostics;
+
+import lombok.AllArgsConstructor;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes every connection of the application data source through {@link SqlQueryLog}.
+ */
+@Component
+@AllArgsConstructor
+public class DataSourceDiagnosticsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlQueryLog> sqlQueryLog;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                    .listener(sqlQueryLog.getObject())
+                    .build();
+        }
+        return bean;
+    }
+}
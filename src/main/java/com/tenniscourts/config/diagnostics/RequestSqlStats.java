@@ -0,0 +1,85 @@
+package com.tenniscourts.config.diagnostics;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SQL executed on behalf of the current HTTP request: how many statements, how long they took and how
+ * often each distinct query ran, which is what gives an N+1 away.
+ */
+public class RequestSqlStats {
+
+    private static final ThreadLocal<RequestSqlStats> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger statements = new AtomicInteger();
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private final LongAdder nanos = new LongAdder();
+
+    private final Map<String, AtomicInteger> executionsBySql = new ConcurrentHashMap<>();
+
+    public static RequestSqlStats current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(RequestSqlStats stats) {
+        CURRENT.set(stats);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wraps work handed to another thread so its SQL still counts towards the current request.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        RequestSqlStats stats = CURRENT.get();
+        if (stats == null) {
+            return work;
+        }
+        return () -> {
+            bind(stats);
+            try {
+                return work.get();
+            } finally {
+                clear();
+            }
+        };
+    }
+
+    void record(String sql, boolean batch, long elapsedNanos) {
+        statements.incrementAndGet();
+        nanos.add(elapsedNanos);
+        if (!batch) {
+            queries.incrementAndGet();
+            executionsBySql.computeIfAbsent(sql, key -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    int getStatements() {
+        return statements.get();
+    }
+
+    /**
+     * Statements other than JDBC batches, the ones a query budget is about.
+     */
+    int getQueries() {
+        return queries.get();
+    }
+
+    long getNanos() {
+        return nanos.sum();
+    }
+
+    Map.Entry<String, AtomicInteger> mostRepeatedQuery() {
+        return executionsBySql.entrySet().stream()
+                .max(Comparator.comparingInt(entry -> entry.getValue().get()))
+                .orElse(null);
+    }
+}
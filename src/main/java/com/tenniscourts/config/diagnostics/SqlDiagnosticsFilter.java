@@ -0,0 +1,126 @@
+package com.tenniscourts.config.diagnostics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the SQL of each request into {@link RequestSqlStats}, publishes statement counts and SQL
+ * time per endpoint, and warns about requests that run more queries than
+ * {@code tenniscourts.sql.query-budget}, naming the controller method and the most repeated query.
+ */
+@Slf4j(topic = "tenniscourts.sql")
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class SqlDiagnosticsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    private final int queryBudget;
+
+    public SqlDiagnosticsFilter(MeterRegistry meterRegistry, @Value("${tenniscourts.sql.query-budget:20}") int queryBudget) {
+        this.meterRegistry = meterRegistry;
+        this.queryBudget = queryBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestSqlStats stats = new RequestSqlStats();
+        RequestSqlStats.bind(stats);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestSqlStats.clear();
+            if (isAsyncStarted(request)) {
+                request.getAsyncContext().addListener(new RecordOnComplete(request, stats));
+            } else {
+                this.record(request, stats);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestSqlStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("tenniscourts.http.statements")
+                .description("SQL statements executed per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1_000L)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("tenniscourts.http.sql")
+                .description("Time spent executing SQL per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.getQueries() > queryBudget) {
+            Map.Entry<String, AtomicInteger> mostRepeated = stats.mostRepeatedQuery();
+            log.warn("{} {} in {} ran {} queries (budget {}) taking {} ms, likely N+1; most repeated x{}: {}",
+                    request.getMethod(), request.getRequestURI(), handlerName(request), stats.getQueries(), queryBudget,
+                    TimeUnit.NANOSECONDS.toMillis(stats.getNanos()), mostRepeated.getValue().get(), mostRepeated.getKey());
+        }
+    }
+
+    private static String handlerName(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            return handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+        }
+        return String.valueOf(handler);
+    }
+
+    /**
+     * Asynchronous controllers return before their SQL has run, so the request is recorded once the
+     * response is complete instead.
+     */
+    @AllArgsConstructor
+    private class RecordOnComplete implements AsyncListener {
+
+        private final HttpServletRequest request;
+
+        private final RequestSqlStats stats;
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, stats);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.tenniscourts.config.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Times every JDBC execution, adds it to the current {@link RequestSqlStats} and logs it to
+ * {@code tenniscourts.sql} when it is slower than the threshold or picked by the sample rate. Log lines
+ * are written by a background thread from a bounded queue, so a burst of slow queries never blocks the
+ * connection that ran them; bind parameters are left out on purpose.
+ */
+@Slf4j(topic = "tenniscourts.sql")
+@Component
+public class SqlQueryLog implements QueryExecutionListener {
+
+    private static final String START_NANOS = "startNanos";
+
+    private final long slowQueryNanos;
+
+    private final double sampleRate;
+
+    private final BlockingQueue<String> records;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread writer = new Thread(this::drain, "sql-log");
+
+    private volatile boolean running = true;
+
+    public SqlQueryLog(@Value("${tenniscourts.sql.slow-query-threshold-ms:200}") long slowQueryMillis,
+                       @Value("${tenniscourts.sql.sample-rate:0}") double sampleRate,
+                       @Value("${tenniscourts.sql.log-queue-capacity:10000}") int queueCapacity) {
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+        this.sampleRate = sampleRate;
+        this.records = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public long getDroppedRecords() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsedNanos = System.nanoTime() - execInfo.getCustomValue(START_NANOS, Long.class);
+        String sql = queryInfoList.size() == 1 ? queryInfoList.get(0).getQuery()
+                : queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats != null) {
+            stats.record(sql, execInfo.isBatch(), elapsedNanos);
+        }
+
+        boolean slow = elapsedNanos >= slowQueryNanos;
+        if (slow || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            String record = (slow ? "slow" : "sampled") + " " + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) + "us"
+                    + (execInfo.isBatch() ? " batch=" + execInfo.getBatchSize() : "")
+                    + (execInfo.isSuccess() ? "" : " failed") + " " + sql;
+            if (!records.offer(record)) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private void drain() {
+        while (running || !records.isEmpty()) {
+            try {
+                String record = records.poll(1, TimeUnit.SECONDS);
+                if (record != null) {
+                    log.info(record);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.tenniscourts.config.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tenniscourts.exceptions.BusinessException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of requests sent with an {@value #IDEMPOTENCY_KEY_HEADER} header, so a client
+ * retrying after a timeout gets the original response instead of running the request again.
+ * <p>
+ * The first request with a key stores its future right away: duplicates arriving while it runs wait
+ * on it, and later ones are answered from memory without touching the database. Reusing a key for a
+ * different request is rejected. Failed requests are forgotten, since nothing they did was committed,
+ * so their retry runs again. Keys are kept for {@code tenniscourts.idempotency.ttl}, and at most
+ * {@code tenniscourts.idempotency.max-keys} of them.
+ */
+@Component
+public class IdempotencyStore implements MeterBinder {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, StoredResponse> responses;
+
+    private final LongAdder replays = new LongAdder();
+
+    public IdempotencyStore(@Value("${tenniscourts.idempotency.max-keys:100000}") long maxKeys,
+                            @Value("${tenniscourts.idempotency.ttl:24h}") Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Runs the work once per {@code operation} and key; the request identifies what was asked for and
+     * must be equal on every retry.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<ResponseEntity<T>> execute(String operation, String idempotencyKey, Object request,
+                                                           Supplier<CompletableFuture<ResponseEntity<T>>> work) {
+        if (idempotencyKey == null) {
+            return work.get();
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " must have 1 to " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String key = operation + ":" + idempotencyKey;
+        StoredResponse stored = new StoredResponse(request, new CompletableFuture<>());
+        StoredResponse previous = responses.asMap().putIfAbsent(key, stored);
+        if (previous != null) {
+            if (!Objects.equals(previous.request, request)) {
+                throw new BusinessException(IDEMPOTENCY_KEY_HEADER + " was already used for a different request.");
+            }
+            replays.increment();
+            return previous.response.thenApply(response -> replayed((ResponseEntity<T>) response));
+        }
+
+        CompletableFuture<ResponseEntity<T>> response;
+        try {
+            response = work.get();
+        } catch (RuntimeException ex) {
+            responses.asMap().remove(key, stored);
+            stored.response.completeExceptionally(ex);
+            throw ex;
+        }
+        return response.whenComplete((result, ex) -> {
+            if (ex != null) {
+                responses.asMap().remove(key, stored);
+                stored.response.completeExceptionally(ex);
+            } else {
+                stored.response.complete(result);
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tenniscourts.idempotency.replays", replays, LongAdder::sum)
+                .description("Requests answered with the response of an earlier request with the same key")
+                .register(registry);
+        // same tag keys as the Spring managed caches, Prometheus rejects meters that differ
+        CaffeineCacheMetrics.monitor(registry, responses, "idempotencyKeys",
+                "cacheManager", "idempotencyStore", "name", "idempotencyStore");
+    }
+
+    private static <T> ResponseEntity<T> replayed(ResponseEntity<T> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    @AllArgsConstructor
+    private static class StoredResponse {
+
+        private final Object request;
+
+        private final CompletableFuture<ResponseEntity<?>> response;
+    }
+}
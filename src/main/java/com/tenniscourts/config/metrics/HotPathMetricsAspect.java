@@ -0,0 +1,72 @@
+package com.tenniscourts.config.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public service method and every repository call, with percentile histograms so
+ * latency SLOs can be computed from the scraped buckets. Runs outermost, so cache hits are timed too.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@AllArgsConstructor
+public class HotPathMetricsAspect {
+
+    private static final Map<Class<?>, String> REPOSITORY_NAMES = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("within(com.tenniscourts..*Service) && execution(public * *(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("tenniscourts.service", joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint);
+    }
+
+    @Around("execution(* com.tenniscourts..*Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("tenniscourts.repository", repositoryName(joinPoint.getThis()), joinPoint);
+    }
+
+    private Object time(String name, String type, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            Timer.builder(name)
+                    .tag("class", type)
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Inherited methods such as {@code findById} are declared on Spring Data interfaces, so the
+     * repository is named after the application interface the proxy implements instead.
+     */
+    private static String repositoryName(Object proxy) {
+        return REPOSITORY_NAMES.computeIfAbsent(proxy.getClass(), proxyClass -> Arrays.stream(proxyClass.getInterfaces())
+                .filter(type -> type.getName().startsWith("com.tenniscourts"))
+                .map(Class::getSimpleName)
+                .findFirst()
+                .orElse(proxyClass.getSimpleName()));
+    }
+}
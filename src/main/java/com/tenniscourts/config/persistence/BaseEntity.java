@@ -4,6 +4,8 @@ import com.tenniscourts.audit.CustomAuditEntityListener;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
@@ -23,8 +25,16 @@ import java.time.LocalDateTime;
 @EntityListeners(CustomAuditEntityListener.class)
 public class BaseEntity<ID> implements Serializable {
 
+    /**
+     * Ids come from one sequence per entity (e.g. {@code schedule_seq}) handed out in blocks of 50, so
+     * Hibernate can group inserts into JDBC batches, which it cannot do with identity columns.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_sequence")
+    @GenericGenerator(name = "pooled_sequence", strategy = "enhanced-sequence", parameters = {
+            @Parameter(name = "prefer_sequence_per_entity", value = "true"),
+            @Parameter(name = "optimizer", value = "pooled-lo"),
+            @Parameter(name = "increment_size", value = "50")})
     private ID id;
 
     @Column
@@ -0,0 +1,26 @@
+package com.tenniscourts.config.persistence;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away when there is none.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
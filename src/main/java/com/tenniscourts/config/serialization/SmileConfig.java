@@ -0,0 +1,23 @@
+package com.tenniscourts.config.serialization;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Serves every endpoint as Smile, binary JSON, to clients that send {@code Accept: application/x-jackson-smile}.
+ * The mapper is built from the one Spring Boot configures for JSON, so both formats carry the same fields.
+ */
+@Configuration
+public class SmileConfig {
+
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,95 @@
+package com.tenniscourts.config.startup;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Logs how long each phase of the startup took, from the JVM start until the application is ready to
+ * serve, and how many of the beans were created on the way, which shows what lazy initialization saved.
+ * Runs last, so the ready phase includes the {@code ApplicationReadyEvent} listeners loading the indexes.
+ */
+public class StartupTimingListener implements SpringApplicationRunListener, Ordered {
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+
+    private long phaseStart;
+
+    public StartupTimingListener(SpringApplication application, String[] args) {
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void starting() {
+        phaseMillis.put("jvm", System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+        phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void environmentPrepared(ConfigurableEnvironment environment) {
+        this.endPhase("environment");
+    }
+
+    @Override
+    public void contextPrepared(ConfigurableApplicationContext context) {
+        this.endPhase("context");
+    }
+
+    @Override
+    public void contextLoaded(ConfigurableApplicationContext context) {
+        this.endPhase("sources");
+        context.addApplicationListener(event -> {
+            if (event instanceof ContextRefreshedEvent) {
+                this.endPhase("beans");
+            } else if (event instanceof WebServerInitializedEvent) {
+                this.endPhase("web server");
+            }
+        });
+    }
+
+    @Override
+    public void started(ConfigurableApplicationContext context) {
+        this.endPhase("lifecycle");
+    }
+
+    @Override
+    public void running(ConfigurableApplicationContext context) {
+        this.endPhase("ready");
+        long total = phaseMillis.values().stream().mapToLong(Long::longValue).sum();
+        String phases = phaseMillis.entrySet().stream()
+                .map(phase -> phase.getKey() + " " + phase.getValue() + " ms")
+                .collect(Collectors.joining(", "));
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        String[] beanNames = beanFactory.getBeanDefinitionNames();
+        long created = Arrays.stream(beanNames).filter(beanFactory::containsSingleton).count();
+        LoggerFactory.getLogger(StartupTimingListener.class).info("Ready in {} ms: {}; {} of {} beans created", total, phases,
+                created, beanNames.length);
+    }
+
+    @Override
+    public void failed(ConfigurableApplicationContext context, Throwable exception) {
+    }
+
+    private void endPhase(String phase) {
+        long now = System.nanoTime();
+        phaseMillis.put(phase, TimeUnit.NANOSECONDS.toMillis(now - phaseStart));
+        phaseStart = now;
+    }
+}
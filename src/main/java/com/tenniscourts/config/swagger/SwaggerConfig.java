@@ -1,19 +1,35 @@
 package com.tenniscourts.config.swagger;
 
+import com.fasterxml.classmate.TypeResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.AlternateTypeRules;
+import springfox.documentation.schema.WildcardType;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Not in production: springfox documents the API while the context starts, which needs the MVC beans
+ * that the prod profile creates lazily.
+ */
 @Configuration
+@EnableSwagger2
+@Profile("!prod")
 public class SwaggerConfig {
 
     @Bean
-    public Docket productApi() {
+    public Docket productApi(TypeResolver typeResolver) {
         return new Docket(DocumentationType.SWAGGER_2)
+                .alternateTypeRules(AlternateTypeRules.newRule(
+                        typeResolver.resolve(CompletableFuture.class, typeResolver.resolve(ResponseEntity.class, WildcardType.class)),
+                        typeResolver.resolve(WildcardType.class)))
                 .select().apis(RequestHandlerSelectors.basePackage("com.tenniscourts"))
                 .paths(PathSelectors.any())
                 .build();
@@ -0,0 +1,11 @@
+package com.tenniscourts.exceptions;
+
+/**
+ * A part of the service stopped and only comes back with a restart.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String msg) {
+        super(msg);
+    }
+}
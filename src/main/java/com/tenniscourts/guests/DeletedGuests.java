@@ -0,0 +1,30 @@
+package com.tenniscourts.guests;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.tenniscourts.config.persistence.TransactionCallbacks.afterCommit;
+
+/**
+ * Ids of the guests deleted since the start, kept up to date by {@link GuestService}, for checks that
+ * must not wait for the database. Guest ids are never reused, so a guest checked in the database
+ * before is gone for good once its id is here.
+ */
+@Component
+public class DeletedGuests {
+
+    private final Set<Long> guestIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Records the deletion once the current transaction commits.
+     */
+    public void add(Long guestId) {
+        afterCommit(() -> guestIds.add(guestId));
+    }
+
+    public boolean contains(Long guestId) {
+        return guestIds.contains(guestId);
+    }
+}
@@ -11,11 +11,12 @@ import lombok.ToString;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_guest_name", columnList = "name, id"))
 @Getter
 @Setter
 @Builder
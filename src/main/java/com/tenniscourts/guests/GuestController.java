@@ -0,0 +1,77 @@
+package com.tenniscourts.guests;
+
+import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.config.async.ControllerExecutor;
+import io.swagger.annotations.ApiOperation;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/guests")
+@AllArgsConstructor
+public class GuestController extends BaseRestController {
+
+    private final GuestService guestService;
+
+    private final ControllerExecutor controllerExecutor;
+
+    @ApiOperation("Creates a guest")
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Void>> addGuest(@Valid @RequestBody GuestDTO guestDTO) {
+        Function<Long, URI> location = locationByEntity();
+        return controllerExecutor.submit(() -> ResponseEntity.created(location.apply(guestService.addGuest(guestDTO).getId())).build());
+    }
+
+    @ApiOperation("Renames a guest")
+    @PutMapping("/{guestId}")
+    public CompletableFuture<ResponseEntity<GuestDTO>> updateGuest(@PathVariable Long guestId, @Valid @RequestBody GuestDTO guestDTO) {
+        return controllerExecutor.submit(() -> ResponseEntity.ok(guestService.updateGuest(guestId, guestDTO)));
+    }
+
+    @ApiOperation("Deletes a guest without reservations")
+    @DeleteMapping("/{guestId}")
+    public CompletableFuture<ResponseEntity<Void>> deleteGuest(@PathVariable Long guestId) {
+        return controllerExecutor.submit(() -> {
+            guestService.deleteGuest(guestId);
+            return ResponseEntity.noContent().build();
+        });
+    }
+
+    @ApiOperation("Finds a guest by id")
+    @GetMapping("/{guestId}")
+    public CompletableFuture<ResponseEntity<GuestDTO>> findGuestById(@PathVariable Long guestId) {
+        return controllerExecutor.submit(() -> ResponseEntity.ok(guestService.findGuestById(guestId)));
+    }
+
+    @ApiOperation("Lists all guests by name, one page at a time")
+    @GetMapping
+    public CompletableFuture<ResponseEntity<GuestPageDTO>> findGuests(
+            @RequestParam(required = false) String afterName,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "50") int size) {
+        return controllerExecutor.submit(() -> ResponseEntity.ok(guestService.findGuests(afterName, afterId, size)));
+    }
+
+    @ApiOperation("Finds guests with a word of their name starting with the given text")
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<List<GuestDTO>>> searchGuests(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "10") int limit) {
+        return controllerExecutor.submit(() -> ResponseEntity.ok(guestService.searchGuests(name, limit)));
+    }
+}
@@ -0,0 +1,25 @@
+package com.tenniscourts.guests;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.validation.constraints.NotBlank;
+
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GuestDTO {
+
+    private Long id;
+
+    @NotBlank
+    private String name;
+
+}
@@ -0,0 +1,149 @@
+package com.tenniscourts.guests;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import static com.tenniscourts.config.persistence.TransactionCallbacks.afterCommit;
+
+/**
+ * In-memory index of guest names for type-ahead search.
+ * <p>
+ * Names are normalized (case, accents and whitespace) and kept in a sorted map once per word, keyed
+ * by the name from that word on, so "fed" finds "Roger Federer" as well as "Federica Pellegrini".
+ * A prefix lookup is a seek into the map followed by a scan over the matches only, whatever the number
+ * of guests. The index is loaded once on startup and kept up to date by {@link GuestService}; updates
+ * issued inside a transaction are applied only after it commits. Guests created, renamed or deleted
+ * while the load runs are remembered, and the load leaves them as those updates left them instead of
+ * putting back what it read.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GuestNameIndex {
+
+    private static final char ID_SEPARATOR = '\0';
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final GuestRepository guestRepository;
+
+    private final ConcurrentSkipListMap<String, GuestDTO> guestsByKey = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<Long, String> namesByGuest = new ConcurrentHashMap<>();
+
+    private final Set<Long> changedWhileLoading = new HashSet<>();
+
+    private boolean loading;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        synchronized (changedWhileLoading) {
+            loading = true;
+        }
+        try {
+            List<GuestNameView> guests = guestRepository.findAllNames();
+            guests.forEach(guest -> {
+                synchronized (changedWhileLoading) {
+                    if (!changedWhileLoading.contains(guest.getId())) {
+                        put(guest.getId(), guest.getName());
+                    }
+                }
+            });
+            log.info("Guest name index loaded {} guests in {} ms", guests.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            synchronized (changedWhileLoading) {
+                loading = false;
+                changedWhileLoading.clear();
+            }
+        }
+    }
+
+    public void indexGuest(Long guestId, String name) {
+        afterCommit(() -> change(guestId, () -> put(guestId, name)));
+    }
+
+    public void removeGuest(Long guestId) {
+        afterCommit(() -> change(guestId, () -> remove(guestId)));
+    }
+
+    /**
+     * Guests with a word of their name starting with the prefix, at most {@code limit} of them, ordered
+     * by the matching part of the name.
+     */
+    public List<GuestDTO> search(String prefix, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        Set<Long> guestIds = new LinkedHashSet<>();
+        List<GuestDTO> guests = new ArrayList<>(limit);
+        for (Map.Entry<String, GuestDTO> entry : guestsByKey.tailMap(normalizedPrefix).entrySet()) {
+            if (guests.size() == limit || !entry.getKey().startsWith(normalizedPrefix)) {
+                break;
+            }
+            GuestDTO guest = entry.getValue();
+            if (guestIds.add(guest.getId())) {
+                guests.add(GuestDTO.builder().id(guest.getId()).name(guest.getName()).build());
+            }
+        }
+        return guests;
+    }
+
+    static String normalize(String name) {
+        String withoutAccents = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(withoutAccents.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private void change(Long guestId, Runnable update) {
+        synchronized (changedWhileLoading) {
+            if (loading) {
+                changedWhileLoading.add(guestId);
+            }
+            update.run();
+        }
+    }
+
+    private void put(Long guestId, String name) {
+        namesByGuest.compute(guestId, (id, previousName) -> {
+            if (previousName != null) {
+                keys(id, previousName).forEach(guestsByKey::remove);
+            }
+            GuestDTO guest = GuestDTO.builder().id(id).name(name).build();
+            keys(id, name).forEach(key -> guestsByKey.put(key, guest));
+            return name;
+        });
+    }
+
+    private void remove(Long guestId) {
+        namesByGuest.computeIfPresent(guestId, (id, name) -> {
+            keys(id, name).forEach(guestsByKey::remove);
+            return null;
+        });
+    }
+
+    private static List<String> keys(Long guestId, String name) {
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized + ID_SEPARATOR + guestId);
+        for (int space = normalized.indexOf(' '); space >= 0; space = normalized.indexOf(' ', space + 1)) {
+            keys.add(normalized.substring(space + 1) + ID_SEPARATOR + guestId);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,8 @@
+package com.tenniscourts.guests;
+
+public interface GuestNameView {
+
+    Long getId();
+
+    String getName();
+}
@@ -0,0 +1,26 @@
+package com.tenniscourts.guests;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GuestPageDTO {
+
+    private List<GuestDTO> guests;
+
+    private boolean hasMore;
+
+    private String nextAfterName;
+
+    private Long nextAfterId;
+
+}
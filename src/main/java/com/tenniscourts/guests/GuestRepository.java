@@ -0,0 +1,22 @@
+package com.tenniscourts.guests;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface GuestRepository extends JpaRepository<Guest, Long> {
+
+    @Query("select g.id as id, g.name as name from Guest g")
+    List<GuestNameView> findAllNames();
+
+    @Query("select count(r) > 0 from Reservation r where r.guest.id = :guestId")
+    boolean hasReservations(@Param("guestId") Long guestId);
+
+    List<Guest> findAllByOrderByNameAscIdAsc(Pageable pageable);
+
+    @Query("select g from Guest g where g.name > :afterName or (g.name = :afterName and g.id > :afterId) order by g.name, g.id")
+    List<Guest> findAllAfter(@Param("afterName") String afterName, @Param("afterId") Long afterId, Pageable pageable);
+}
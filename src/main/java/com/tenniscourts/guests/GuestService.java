@@ -0,0 +1,112 @@
+package com.tenniscourts.guests;
+
+import com.tenniscourts.exceptions.BusinessException;
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.reservations.ReservationService;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@AllArgsConstructor
+public class GuestService {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    private final GuestRepository guestRepository;
+
+    private final GuestMapper guestMapper;
+
+    private final GuestNameIndex guestNameIndex;
+
+    private final DeletedGuests deletedGuests;
+
+    private final ReservationService reservationService;
+
+    @Transactional
+    public GuestDTO addGuest(GuestDTO guestDTO) {
+        Guest guest = guestRepository.saveAndFlush(guestMapper.map(guestDTO));
+        guestNameIndex.indexGuest(guest.getId(), guest.getName());
+        return guestMapper.map(guest);
+    }
+
+    @Transactional
+    public GuestDTO updateGuest(Long guestId, GuestDTO guestDTO) {
+        Guest guest = this.findGuest(guestId);
+        guest.setName(guestDTO.getName());
+        guestNameIndex.indexGuest(guestId, guest.getName());
+        return guestMapper.map(guestRepository.saveAndFlush(guest));
+    }
+
+    /**
+     * Guests are kept while reservations refer to them; archived reservations only keep the guest id.
+     */
+    @Transactional
+    public void deleteGuest(Long guestId) {
+        Guest guest = this.findGuest(guestId);
+        reservationService.holdReservationChanges();
+        if (reservationService.hasReservations(guestId)) {
+            throw new BusinessException("Guest has reservations and cannot be deleted.");
+        }
+        guestRepository.delete(guest);
+        guestNameIndex.removeGuest(guestId);
+        deletedGuests.add(guestId);
+    }
+
+    @Transactional(readOnly = true)
+    public GuestDTO findGuestById(Long guestId) {
+        return guestMapper.map(this.findGuest(guestId));
+    }
+
+    /**
+     * Reads one keyset page of all guests ordered by name. Only {@code size + 1} rows are read from the
+     * database, whatever the cursor position.
+     */
+    @Transactional(readOnly = true)
+    public GuestPageDTO findGuests(String afterName, Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<GuestDTO> guests = guestMapper.map(afterName == null
+                ? guestRepository.findAllByOrderByNameAscIdAsc(limit)
+                : guestRepository.findAllAfter(afterName, afterId == null ? 0L : afterId, limit));
+
+        boolean hasMore = guests.size() > size;
+        if (hasMore) {
+            guests.remove(size);
+        }
+        GuestDTO last = guests.isEmpty() ? null : guests.get(guests.size() - 1);
+        return GuestPageDTO.builder()
+                .guests(guests)
+                .hasMore(hasMore)
+                .nextAfterName(hasMore ? last.getName() : null)
+                .nextAfterId(hasMore ? last.getId() : null)
+                .build();
+    }
+
+    /**
+     * Type-ahead search answered from the {@link GuestNameIndex}, without touching the database.
+     */
+    public List<GuestDTO> searchGuests(String name, int limit) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Name to search for must not be blank.");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_RESULTS + ".");
+        }
+        return guestNameIndex.search(name, limit);
+    }
+
+    private Guest findGuest(Long guestId) {
+        return guestRepository.findById(guestId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Guest not found.");
+        });
+    }
+}
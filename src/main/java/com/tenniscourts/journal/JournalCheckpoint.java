@@ -0,0 +1,29 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * The sequence of the last journal event copied into the database, updated in the same transaction as
+ * the copy.
+ */
+@Entity
+@Table
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Builder
+public class JournalCheckpoint extends BaseEntity<Long> {
+
+    private long lastSequence;
+}
@@ -0,0 +1,10 @@
+package com.tenniscourts.journal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint, Long> {
+
+    Optional<JournalCheckpoint> findFirstByOrderByIdAsc();
+}
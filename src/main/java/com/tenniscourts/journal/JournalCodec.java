@@ -0,0 +1,118 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventType;
+import com.tenniscourts.reservations.ReservationStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary form of journal events and snapshot entries. Enums are written by ordinal, like in the
+ * database, so new constants must be appended.
+ */
+final class JournalCodec {
+
+    private static final long NULL = Long.MIN_VALUE;
+
+    private JournalCodec() {
+    }
+
+    static void writeEvent(DataOutput out, ReservationEvent event) throws IOException {
+        out.writeByte(event.getEventType().ordinal());
+        out.writeLong(event.getReservationId());
+        out.writeLong(event.getScheduleId());
+        writeNullableLong(out, event.getGuestId());
+        writeNullableLong(out, event.getRelatedReservationId());
+        writeDecimal(out, event.getValue());
+        writeDecimal(out, event.getRefundValue());
+        writeDateTime(out, event.getOccurredAt());
+    }
+
+    static ReservationEvent readEvent(DataInput in, long sequence) throws IOException {
+        return ReservationEvent.builder()
+                .eventId(sequence)
+                .eventType(ReservationEventType.values()[in.readByte()])
+                .reservationId(in.readLong())
+                .scheduleId(in.readLong())
+                .guestId(readNullableLong(in))
+                .relatedReservationId(readNullableLong(in))
+                .value(readDecimal(in))
+                .refundValue(readDecimal(in))
+                .occurredAt(readDateTime(in))
+                .build();
+    }
+
+    static void writeReservation(DataOutput out, JournalReservation reservation) throws IOException {
+        out.writeLong(reservation.getId());
+        writeNullableLong(out, reservation.getGuestId());
+        out.writeLong(reservation.getScheduleId());
+        out.writeByte(reservation.getReservationStatus().ordinal());
+        writeDecimal(out, reservation.getValue());
+        writeDecimal(out, reservation.getRefundValue());
+        writeDateTime(out, reservation.getCheckInDateTime());
+        out.writeLong(reservation.getSequence());
+    }
+
+    static JournalReservation readReservation(DataInput in) throws IOException {
+        return JournalReservation.builder()
+                .id(in.readLong())
+                .guestId(readNullableLong(in))
+                .scheduleId(in.readLong())
+                .reservationStatus(ReservationStatus.values()[in.readByte()])
+                .value(readDecimal(in))
+                .refundValue(readDecimal(in))
+                .checkInDateTime(readDateTime(in))
+                .sequence(in.readLong())
+                .build();
+    }
+
+    private static void writeNullableLong(DataOutput out, Long value) throws IOException {
+        out.writeLong(value == null ? NULL : value);
+    }
+
+    private static Long readNullableLong(DataInput in) throws IOException {
+        long value = in.readLong();
+        return value == NULL ? null : value;
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeByte(-1);
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        int length = in.readByte();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        if (value == null) {
+            out.writeLong(NULL);
+            return;
+        }
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        long epochSecond = in.readLong();
+        return epochSecond == NULL ? null : LocalDateTime.ofEpochSecond(epochSecond, in.readInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,435 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventPublisher;
+import com.tenniscourts.outbox.ReservationEventType;
+import com.tenniscourts.reservations.ReservationStatus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Copies journal events into the {@code reservation} table and the outbox, so settlement, archiving,
+ * the history and the event consumers keep working on the database while bookings are served from
+ * memory.
+ * <p>
+ * Events are taken in journal order, one batch at a time, once they are durable, and each batch is
+ * written with JDBC batches in one transaction that also moves the {@link JournalCheckpoint}, so every
+ * event reaches the database exactly once. A failing batch is retried with exponential backoff one
+ * event at a time, and an event that still fails after {@code tenniscourts.journal.projection.max-attempts}
+ * for any other reason than the database being unreachable is parked: it is saved to the {@code parked}
+ * directory of the journal for an operator to apply, counted in
+ * {@code tenniscourts.journal.projection.parked} and skipped.
+ * <p>
+ * While the database lags behind, at most {@code tenniscourts.journal.projection.max-backlog} events
+ * wait, after which the store refuses changes until the projector has caught up. Reservations with
+ * events that are still waiting or were parked are {@link #isUnprojected unprojected}: the database
+ * misses their last change.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "tenniscourts.reservations.store", havingValue = "journal")
+public class JournalProjector implements MeterBinder {
+
+    private static final String INSERT = "insert into reservation (id, guest_id, schedule_id, value, reservation_status,"
+            + " refund_value, check_in_date_time, date_create, date_update) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_STATUS = "update reservation"
+            + " set reservation_status = ?, value = ?, refund_value = ?, date_update = ? where id = ?";
+
+    private static final String CHECK_IN = "update reservation set check_in_date_time = ?, date_update = ? where id = ?";
+
+    private static final long FIRST_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ReservationJournal journal;
+
+    private final JournalCheckpointRepository checkpointRepository;
+
+    private final ReservationEventPublisher reservationEventPublisher;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final int maxBacklog;
+
+    private final int maxAttempts;
+
+    private final BlockingQueue<ReservationEvent> pending = new LinkedBlockingQueue<>();
+
+    private final List<ReservationEvent> batch = new ArrayList<>();
+
+    private final LongAdder projected = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder parked = new LongAdder();
+
+    /**
+     * The sequence of the last submitted event of every reservation with events still waiting.
+     */
+    private final Map<Long, Long> unprojectedReservations = new ConcurrentHashMap<>();
+
+    private final Set<Long> parkedReservations = ConcurrentHashMap.newKeySet();
+
+    private JournalCheckpoint checkpoint;
+
+    /**
+     * Events up to this sequence were in a batch that failed and are projected one at a time.
+     */
+    private long isolateThrough;
+
+    /**
+     * Failed attempts to project the first event of the batch on its own.
+     */
+    private int attempts;
+
+    private volatile long projectedSequence;
+
+    private volatile long submittedSequence;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    public JournalProjector(ReservationJournal journal,
+                            JournalCheckpointRepository checkpointRepository,
+                            ReservationEventPublisher reservationEventPublisher,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${tenniscourts.journal.projection-batch-size:500}") int batchSize,
+                            @Value("${tenniscourts.journal.projection.max-backlog:100000}") int maxBacklog,
+                            @Value("${tenniscourts.journal.projection.max-attempts:5}") int maxAttempts) {
+        this.journal = journal;
+        this.checkpointRepository = checkpointRepository;
+        this.reservationEventPublisher = reservationEventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBacklog = maxBacklog;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Reads the checkpoint and the parked events, and returns the sequence of the last event already
+     * in the database.
+     */
+    public long recover() {
+        checkpoint = checkpointRepository.findFirstByOrderByIdAsc()
+                .orElseGet(() -> checkpointRepository.save(JournalCheckpoint.builder().lastSequence(0L).build()));
+        projectedSequence = checkpoint.getLastSequence();
+        submittedSequence = projectedSequence;
+        this.readParked();
+        return projectedSequence;
+    }
+
+    public long getProjectedSequence() {
+        return projectedSequence;
+    }
+
+    /**
+     * Waits until every event submitted before the call is in the database or parked.
+     */
+    public synchronized boolean awaitProjected(long timeoutMillis) throws InterruptedException {
+        long sequence = submittedSequence;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (projectedSequence < sequence) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return false;
+            }
+            this.wait(remainingMillis);
+        }
+        return true;
+    }
+
+    /**
+     * Whether an event of the reservation still waits to be copied into the database or was parked.
+     */
+    public boolean isUnprojected(Long reservationId) {
+        return unprojectedReservations.containsKey(reservationId) || parkedReservations.contains(reservationId);
+    }
+
+    /**
+     * Rejects a change of the given number of events while the backlog is full. Called before the
+     * events are appended, by the only thread that submits, so they can be submitted afterwards.
+     */
+    public void ensureCapacity(int events) {
+        if (pending.size() + events > maxBacklog) {
+            throw new RejectedExecutionException("Reservation events wait to be copied into the database.");
+        }
+    }
+
+    /**
+     * Queues an event, which must come right after the last one submitted.
+     */
+    public void submit(ReservationEvent event) {
+        unprojectedReservations.put(event.getReservationId(), event.getEventId());
+        submittedSequence = event.getEventId();
+        pending.add(event);
+    }
+
+    /**
+     * Projects everything submitted so far on the calling thread, parking poison events on the way.
+     */
+    public void catchUp() throws InterruptedException {
+        int failuresInARow = 0;
+        while (!batch.isEmpty() || !pending.isEmpty()) {
+            if (batch.isEmpty()) {
+                pending.drainTo(batch, batchSize);
+            }
+            if (!journal.awaitDurable(batch.get(batch.size() - 1).getEventId(), TimeUnit.SECONDS.toMillis(10))) {
+                throw new IllegalStateException("Reservation journal did not sync event " + batch.get(batch.size() - 1).getEventId());
+            }
+            try {
+                this.projectNext();
+                failuresInARow = 0;
+            } catch (RuntimeException ex) {
+                // A poison event is parked at the latest on its own attempt after the failing batch.
+                if (cannotReachDatabase(ex) || ++failuresInARow > maxAttempts) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "journal-projector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the projector thread and projects what is left, which is otherwise picked up from the
+     * journal on the next start.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        if (thread.isAlive()) {
+            return;
+        }
+        try {
+            this.catchUp();
+        } catch (RuntimeException ex) {
+            log.warn("Leaving {} reservation events for the next start: {}", batch.size() + pending.size(), ex.toString());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tenniscourts.journal.projection.lag", pending, BlockingQueue::size)
+                .description("Journal events not copied into the database yet")
+                .register(registry);
+        FunctionCounter.builder("tenniscourts.journal.projected", projected, LongAdder::sum).register(registry);
+        FunctionCounter.builder("tenniscourts.journal.projection.failures", failures, LongAdder::sum).register(registry);
+        FunctionCounter.builder("tenniscourts.journal.projection.parked", parked, LongAdder::sum)
+                .description("Journal events skipped because they could not be copied into the database")
+                .register(registry);
+    }
+
+    private void run() {
+        long retryDelayMillis = 0;
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    ReservationEvent first = pending.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    pending.drainTo(batch, batchSize - 1);
+                }
+                if (!journal.awaitDurable(batch.get(batch.size() - 1).getEventId(), TimeUnit.SECONDS.toMillis(1))) {
+                    continue;
+                }
+                this.projectNext();
+                retryDelayMillis = 0;
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                retryDelayMillis = Math.min(Math.max(retryDelayMillis * 2, FIRST_RETRY_DELAY_MILLIS), MAX_RETRY_DELAY_MILLIS);
+                log.error("Failed to copy reservation events {} to {} into the database, retrying in {} ms",
+                        batch.get(0).getEventId(), batch.get(batch.size() - 1).getEventId(), retryDelayMillis, ex);
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Projects the batch, or only its first event while the events of a failed batch are isolated, and
+     * parks that event once it has failed too often.
+     */
+    private void projectNext() {
+        List<ReservationEvent> events = batch.get(0).getEventId() <= isolateThrough ? batch.subList(0, 1) : batch;
+        try {
+            this.project(events);
+            attempts = 0;
+        } catch (RuntimeException ex) {
+            failures.increment();
+            isolateThrough = Math.max(isolateThrough, batch.get(batch.size() - 1).getEventId());
+            if (events.size() == 1 && ++attempts >= maxAttempts && !cannotReachDatabase(ex)) {
+                this.park(events.get(0), ex);
+                attempts = 0;
+                return;
+            }
+            throw ex;
+        }
+    }
+
+    private void project(List<ReservationEvent> events) {
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> statusUpdates = new ArrayList<>();
+        List<Object[]> checkIns = new ArrayList<>();
+        for (ReservationEvent event : events) {
+            Timestamp occurredAt = Timestamp.valueOf(event.getOccurredAt());
+            switch (event.getEventType()) {
+                case BOOKED:
+                    inserts.add(new Object[]{event.getReservationId(), event.getGuestId(), event.getScheduleId(),
+                            event.getValue(), ReservationStatus.READY_TO_PLAY.ordinal(), null, null, occurredAt, occurredAt});
+                    break;
+                case CANCELLED:
+                case RESCHEDULED:
+                    ReservationStatus status = event.getEventType() == ReservationEventType.CANCELLED
+                            ? ReservationStatus.CANCELLED : ReservationStatus.RESCHEDULED;
+                    statusUpdates.add(new Object[]{status.ordinal(), event.getValue(), event.getRefundValue(), occurredAt,
+                            event.getReservationId()});
+                    break;
+                case CHECKED_IN:
+                    checkIns.add(new Object[]{occurredAt, occurredAt, event.getReservationId()});
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown reservation event type " + event.getEventType());
+            }
+        }
+
+        long lastSequence = events.get(events.size() - 1).getEventId();
+        checkpoint = transactionTemplate.execute(status -> {
+            // Rows are inserted before they are updated, which keeps changes within a batch in order as
+            // a reservation is only ever booked, then checked in or closed once.
+            jdbcTemplate.batchUpdate(INSERT, inserts);
+            jdbcTemplate.batchUpdate(UPDATE_STATUS, statusUpdates);
+            jdbcTemplate.batchUpdate(CHECK_IN, checkIns);
+            reservationEventPublisher.publishAll(events);
+
+            checkpoint.setLastSequence(lastSequence);
+            return checkpointRepository.save(checkpoint);
+        });
+        events.forEach(event -> unprojectedReservations.remove(event.getReservationId(), event.getEventId()));
+        this.advanceTo(lastSequence);
+        projected.add(events.size());
+        events.clear();
+    }
+
+    /**
+     * Saves the event next to the journal, where it survives the journal segments, and moves the
+     * checkpoint past it.
+     */
+    private void park(ReservationEvent event, RuntimeException cause) {
+        Path file = journal.getDirectory().resolve("parked").resolve(String.format("%020d.event", event.getEventId()));
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                JournalCodec.writeEvent(new DataOutputStream(out), event);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        checkpoint = transactionTemplate.execute(status -> {
+            checkpoint.setLastSequence(event.getEventId());
+            return checkpointRepository.save(checkpoint);
+        });
+        parkedReservations.add(event.getReservationId());
+        unprojectedReservations.remove(event.getReservationId(), event.getEventId());
+        this.advanceTo(event.getEventId());
+        parked.increment();
+        batch.remove(0);
+        log.error("Parked reservation event {} in {} after {} failed attempts to copy it into the database: {}",
+                event, file, maxAttempts, cause.toString());
+    }
+
+    private synchronized void advanceTo(long sequence) {
+        projectedSequence = sequence;
+        this.notifyAll();
+    }
+
+    /**
+     * Parked events stay parked until an operator applied them and removed their files.
+     */
+    private void readParked() {
+        Path directory = journal.getDirectory().resolve("parked");
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".event")) {
+                    continue;
+                }
+                try (InputStream in = Files.newInputStream(file)) {
+                    long sequence = Long.parseLong(name.substring(0, name.length() - ".event".length()));
+                    parkedReservations.add(JournalCodec.readEvent(new DataInputStream(in), sequence).getReservationId());
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Failures that any event would run into, which are no reason to park the one at hand.
+     */
+    private static boolean cannotReachDatabase(RuntimeException ex) {
+        return ex instanceof DataAccessResourceFailureException || ex instanceof TransientDataAccessException
+                || ex instanceof TransactionException;
+    }
+}
@@ -0,0 +1,33 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A reservation as held in memory by the journal store, along with the sequence of the last journal
+ * event that changed it.
+ */
+@Value
+@Builder(toBuilder = true)
+class JournalReservation {
+
+    Long id;
+
+    Long guestId;
+
+    Long scheduleId;
+
+    ReservationStatus reservationStatus;
+
+    BigDecimal value;
+
+    BigDecimal refundValue;
+
+    LocalDateTime checkInDateTime;
+
+    long sequence;
+}
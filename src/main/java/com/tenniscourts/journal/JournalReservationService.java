@@ -0,0 +1,724 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.archive.ReservationArchiveRepository;
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
+import com.tenniscourts.exceptions.BusinessException;
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.exceptions.ServiceUnavailableException;
+import com.tenniscourts.guests.DeletedGuests;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventPublisher;
+import com.tenniscourts.outbox.ReservationEventType;
+import com.tenniscourts.reservations.BookingEngine;
+import com.tenniscourts.reservations.BookingStatsDTO;
+import com.tenniscourts.reservations.CreateBatchReservationRequestDTO;
+import com.tenniscourts.reservations.CreateReservationRequestDTO;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationDTO;
+import com.tenniscourts.reservations.ReservationMapper;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationService;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.schedules.ScheduleSlotView;
+import com.tenniscourts.schedules.SlotAvailabilityIndex;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Serves reservation changes from memory and makes them durable in the {@link ReservationJournal}
+ * instead of the database. Selected with {@code tenniscourts.reservations.store=journal}, for a single
+ * node only.
+ * <p>
+ * Changes are validated against the {@link ReservationModel} and appended to the journal under one
+ * lock, which is released before the journal syncs, so the changes of concurrent requests share one
+ * fsync and every request only returns once its own change is on disk. Nothing under the lock goes to
+ * the database: guests are checked and reservation ids and past reservations fetched before it is
+ * taken, and under it a guest is only confirmed against {@link DeletedGuests}. The {@link JournalProjector}
+ * copies the changes into the database afterwards, where reports, settlement and archiving read them.
+ * <p>
+ * A change that does not reach the disk within {@code tenniscourts.journal.commit-timeout-ms} is in
+ * memory already, so the store stops: it answers every request with 503, reports itself down and
+ * writes no more snapshots, and the next start recovers exactly what the journal kept.
+ * <p>
+ * On start the model is read from the latest snapshot, or from the database when there is none, and
+ * the journal events after it are applied again. Snapshots are written every
+ * {@code tenniscourts.journal.snapshot-interval-ms} and on shutdown; only then are reservations of
+ * past schedules dropped from memory and journal segments deleted. The journal directory must be
+ * removed after running with the JPA store, or its snapshots would miss the changes made meanwhile.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+@ConditionalOnProperty(name = "tenniscourts.reservations.store", havingValue = "journal")
+public class JournalReservationService extends ReservationService implements HealthIndicator {
+
+    private static final String FIND_LIVE_RESERVATIONS = "select r.id, r.guest_id, r.schedule_id, r.reservation_status,"
+            + " r.value, r.refund_value, r.check_in_date_time from reservation r"
+            + " join schedule s on s.id = r.schedule_id where s.end_date_time > ?";
+
+    private static final String NEXT_RESERVATION_IDS = "select next value for reservation_seq";
+
+    /**
+     * The increment of {@code reservation_seq}, which hands out blocks of ids like Hibernate does.
+     */
+    private static final int RESERVATION_ID_BLOCK_SIZE = 50;
+
+    private static final long SLOT_HOURS = 1;
+
+    private final ReservationRepository reservationRepository;
+
+    private final GuestRepository guestRepository;
+
+    private final DeletedGuests deletedGuests;
+
+    private final ReservationMapper reservationMapper;
+
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ReservationJournal journal;
+
+    private final JournalProjector projector;
+
+    private final TennisCourtService tennisCourtService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long commitTimeoutMillis;
+
+    private final long changesInDatabaseTimeoutMillis;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder contendedLocks = new LongAdder();
+
+    private volatile ReservationModel model;
+
+    private volatile String stopReason;
+
+    private final ConcurrentLinkedQueue<Long> reservationIds = new ConcurrentLinkedQueue<>();
+
+    private long snapshotSequence;
+
+    public JournalReservationService(ReservationRepository reservationRepository,
+                                     ScheduleRepository scheduleRepository,
+                                     GuestRepository guestRepository,
+                                     DeletedGuests deletedGuests,
+                                     BookingEngine bookingEngine,
+                                     ReservationMapper reservationMapper,
+                                     SlotAvailabilityIndex slotAvailabilityIndex,
+                                     MeterRegistry meterRegistry,
+                                     ReservationEventPublisher reservationEventPublisher,
+                                     ReservationArchiveRepository reservationArchiveRepository,
+                                     ReservationJournal journal,
+                                     JournalProjector projector,
+                                     TennisCourtService tennisCourtService,
+                                     JdbcTemplate jdbcTemplate,
+                                     @Value("${tenniscourts.journal.commit-timeout-ms:5000}") long commitTimeoutMillis,
+                                     @Value("${tenniscourts.journal.projection.await-timeout-ms:60000}") long changesInDatabaseTimeoutMillis) {
+        super(reservationRepository, scheduleRepository, guestRepository, bookingEngine, reservationMapper,
+                slotAvailabilityIndex, meterRegistry, reservationEventPublisher, reservationArchiveRepository);
+        this.reservationRepository = reservationRepository;
+        this.guestRepository = guestRepository;
+        this.deletedGuests = deletedGuests;
+        this.reservationMapper = reservationMapper;
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
+        this.meterRegistry = meterRegistry;
+        this.journal = journal;
+        this.projector = projector;
+        this.tennisCourtService = tennisCourtService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        this.changesInDatabaseTimeoutMillis = changesInDatabaseTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Files.createDirectories(journal.getDirectory());
+        long projectedSequence = projector.recover();
+
+        ReservationModel recovered = ReservationModel.readLatestSnapshot(journal.getDirectory()).orElse(null);
+        if (recovered == null) {
+            recovered = this.loadFromDatabase(projectedSequence);
+        }
+        snapshotSequence = recovered.getSequence();
+
+        ReservationModel replayed = recovered;
+        journal.open(Math.min(replayed.getSequence(), projectedSequence), Math.max(replayed.getSequence(), projectedSequence),
+                event -> {
+                    if (event.getEventId() > replayed.getSequence()) {
+                        replayed.apply(event);
+                    }
+                    if (event.getEventId() > projectedSequence) {
+                        projector.submit(event);
+                    }
+                });
+        model = replayed;
+        projector.catchUp();
+        projector.start();
+
+        log.info("Reservation store recovered {} reservations up to event {} (snapshot at {}, database at {}) in {} ms",
+                model.size(), model.getSequence(), snapshotSequence, projectedSequence,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public ReservationDTO bookReservation(CreateReservationRequestDTO createReservationRequestDTO) {
+        Long guestId = createReservationRequestDTO.getGuestId();
+        List<Long> scheduleIds = Collections.singletonList(createReservationRequestDTO.getScheduleId());
+        return this.toDTO(this.bookWithNewIds(guestId, scheduleIds).get(0));
+    }
+
+    @Override
+    public List<ReservationDTO> bookReservations(CreateBatchReservationRequestDTO createBatchReservationRequestDTO) {
+        Long guestId = createBatchReservationRequestDTO.getGuestId();
+        List<Long> scheduleIds = createBatchReservationRequestDTO.getScheduleIds();
+        validateDistinct(scheduleIds);
+
+        return this.bookWithNewIds(guestId, scheduleIds).stream().map(this::toDTO).collect(Collectors.toList());
+    }
+
+    @Override
+    public BookingStatsDTO getBookingStats() {
+        return BookingStatsDTO.builder()
+                .executions(executions.sum())
+                .contendedLocks(contendedLocks.sum())
+                .build();
+    }
+
+    @Override
+    public boolean hasReservations(Long guestId) {
+        this.ensureRunning();
+        return model.hasReservations(guestId) || super.hasReservations(guestId);
+    }
+
+    @Override
+    public Set<Long> findBookedScheduleIds(Collection<Long> scheduleIds) {
+        this.ensureRunning();
+        Set<Long> booked = new HashSet<>(super.findBookedScheduleIds(scheduleIds));
+        scheduleIds.stream().filter(scheduleId -> model.findBookedReservationId(scheduleId).isPresent()).forEach(booked::add);
+        return booked;
+    }
+
+    /**
+     * Takes the write lock until the current transaction completes, so no change can pick a guest or a
+     * schedule that is deleted in it, even before the change reaches the database.
+     */
+    @Override
+    public void holdReservationChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Reservation changes can only be held for a transaction.");
+        }
+        this.lockWrites();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                writeLock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public void awaitChangesInDatabase() {
+        try {
+            if (!projector.awaitProjected(changesInDatabaseTimeoutMillis)) {
+                throw new BusinessException("Reservation changes are still being copied into the database.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Interrupted while reservation changes were copied into the database.");
+        }
+    }
+
+    /**
+     * Reservations with events that wait for the projector or were parked.
+     */
+    @Override
+    public boolean isChangePending(Long reservationId) {
+        return projector.isUnprojected(reservationId);
+    }
+
+    @Override
+    public Health health() {
+        String reason = stopReason;
+        return reason == null ? Health.up().build() : Health.down().withDetail("reason", reason).build();
+    }
+
+    /**
+     * Reservations of schedules that have not ended are answered from memory. Older ones are left to
+     * the database, where settlement moves them on, unless their last change is not there yet.
+     */
+    @Override
+    public ReservationDTO findReservation(Long reservationId) {
+        this.ensureRunning();
+        LocalDateTime now = LocalDateTime.now();
+        return model.find(reservationId)
+                .filter(reservation -> reservation.getSequence() > projector.getProjectedSequence()
+                        || slotAvailabilityIndex.findSlot(reservation.getScheduleId())
+                        .map(slot -> now.isBefore(slot.getStartDateTime().plusHours(SLOT_HOURS)))
+                        .orElse(false))
+                .map(this::toDTO)
+                .orElseGet(() -> super.findReservation(reservationId));
+    }
+
+    @Override
+    public ReservationDTO cancelReservation(Long reservationId) {
+        JournalReservation stored = this.findStored(reservationId);
+        return this.toDTO(this.write(() -> {
+            Reservation reservation = this.toReservation(this.findLive(reservationId, stored));
+            this.validateCancellation(reservation);
+
+            BigDecimal refundValue = getRefundValue(reservation);
+            ReservationEvent cancelled = this.closingEvent(ReservationEventType.CANCELLED, reservation, refundValue, null);
+            meterRegistry.counter("tenniscourts.reservations.cancellations", "refundTier",
+                    refundTier(refundValue, this.withValue(reservation, cancelled.getValue()))).increment();
+            return Collections.singletonList(cancelled);
+        }).get(0));
+    }
+
+    @Override
+    public ReservationDTO checkInReservation(Long reservationId) {
+        JournalReservation stored = this.findStored(reservationId);
+        return this.toDTO(this.write(() -> {
+            Reservation reservation = this.toReservation(this.findLive(reservationId, stored));
+            this.validateCheckIn(reservation);
+
+            return Collections.singletonList(ReservationEvent.builder()
+                    .eventType(ReservationEventType.CHECKED_IN)
+                    .reservationId(reservation.getId())
+                    .scheduleId(reservation.getSchedule().getId())
+                    .guestId(reservation.getGuest() != null ? reservation.getGuest().getId() : null)
+                    .value(reservation.getValue())
+                    .refundValue(reservation.getRefundValue())
+                    .occurredAt(LocalDateTime.now())
+                    .build());
+        }).get(0));
+    }
+
+    @Override
+    public ReservationDTO rescheduleReservation(Long previousReservationId, Long scheduleId) {
+        JournalReservation stored = this.findStored(previousReservationId);
+        Deque<Long> ids = this.takeReservationIds(1);
+        List<JournalReservation> changed;
+        try {
+            changed = this.write(() -> this.reschedule(previousReservationId, stored, scheduleId, ids));
+        } finally {
+            reservationIds.addAll(ids);
+        }
+
+        ReservationDTO rescheduled = this.toDTO(changed.get(0));
+        rescheduled.setPreviousReservation(this.toDTO(changed.get(1)));
+        return rescheduled;
+    }
+
+    @Scheduled(fixedDelayString = "${tenniscourts.journal.snapshot-interval-ms:300000}",
+            initialDelayString = "${tenniscourts.journal.snapshot-interval-ms:300000}")
+    public void snapshotPeriodically() {
+        try {
+            this.snapshot();
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to write a reservation snapshot", ex);
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() throws IOException {
+        this.snapshot();
+    }
+
+    /**
+     * Writes the model to a new snapshot when it changed since the last one. The previous snapshot is
+     * kept in case the new one turns out damaged, with the journal after it, as far as the database
+     * has it too.
+     */
+    private synchronized void snapshot() throws IOException {
+        if (model == null || stopReason != null) {
+            return;
+        }
+        long projectedSequence = projector.getProjectedSequence();
+        LocalDateTime now = LocalDateTime.now();
+        ReservationModel copy;
+        int pruned;
+        writeLock.lock();
+        try {
+            if (model.getSequence() == snapshotSequence) {
+                return;
+            }
+            pruned = model.prune(reservation -> reservation.getSequence() <= projectedSequence
+                    && slotAvailabilityIndex.findSlot(reservation.getScheduleId())
+                    .map(slot -> !now.isBefore(slot.getStartDateTime().plusHours(SLOT_HOURS)))
+                    .orElse(true));
+            copy = model.copy();
+        } finally {
+            writeLock.unlock();
+        }
+
+        // The snapshot must not get ahead of the journal, or the journal would no longer open after a crash.
+        try {
+            if (!journal.awaitDurable(copy.getSequence(), commitTimeoutMillis)) {
+                log.warn("Skipping the reservation snapshot, event {} is not on disk yet", copy.getSequence());
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        long start = System.nanoTime();
+        copy.writeSnapshot(journal.getDirectory());
+        long previousSnapshotSequence = snapshotSequence;
+        snapshotSequence = copy.getSequence();
+        ReservationModel.deleteSnapshotsBefore(journal.getDirectory(), previousSnapshotSequence);
+        int deletedSegments = journal.deleteSegmentsThrough(Math.min(previousSnapshotSequence, projectedSequence));
+
+        log.info("Wrote reservation snapshot at event {} with {} reservations in {} ms, dropped {} past reservations and {} journal segments",
+                copy.getSequence(), copy.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), pruned, deletedSegments);
+    }
+
+    /**
+     * Validates and appends the events of one change under the write lock, applies them to the model
+     * and the slot index, and once the lock is released waits until the journal has them on disk.
+     * Once events are appended, a failure stops the store instead of failing the change alone.
+     */
+    private List<JournalReservation> write(Supplier<List<ReservationEvent>> change) {
+        this.lockWrites();
+        List<JournalReservation> changed = new ArrayList<>();
+        long lastSequence;
+        try {
+            this.ensureRunning();
+            executions.increment();
+            List<ReservationEvent> events = change.get();
+            projector.ensureCapacity(events.size());
+            try {
+                for (ReservationEvent event : events) {
+                    ReservationEvent appended = journal.append(event);
+                    changed.add(model.apply(appended));
+                    projector.submit(appended);
+                    if (event.getEventType() == ReservationEventType.BOOKED) {
+                        slotAvailabilityIndex.markBooked(event.getScheduleId());
+                    } else if (event.getEventType() != ReservationEventType.CHECKED_IN) {
+                        slotAvailabilityIndex.markFree(event.getScheduleId());
+                    }
+                }
+            } catch (RuntimeException ex) {
+                throw this.stop("Reservation journal failed to append: " + ex, ex);
+            }
+            lastSequence = model.getSequence();
+        } finally {
+            writeLock.unlock();
+        }
+
+        // Waits out interrupts, a change that is on disk in time must not be reported as failed.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commitTimeoutMillis);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (!journal.awaitDurable(lastSequence, Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())))) {
+                        throw this.stop("Reservation journal did not sync event " + lastSequence + " within "
+                                + commitTimeoutMillis + " ms", null);
+                    }
+                    return changed;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch (IllegalStateException ex) {
+            throw this.stop("Reservation journal failed to sync event " + lastSequence, ex);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void lockWrites() {
+        if (!writeLock.tryLock()) {
+            contendedLocks.increment();
+            writeLock.lock();
+        }
+    }
+
+    private void ensureRunning() {
+        if (stopReason != null) {
+            throw new ServiceUnavailableException("Reservation store stopped and recovers on restart: " + stopReason);
+        }
+    }
+
+    /**
+     * Stops the store for good after a change that may not be durable went into the model already.
+     */
+    private ServiceUnavailableException stop(String reason, Exception cause) {
+        if (stopReason == null) {
+            stopReason = reason;
+            log.error("Stopping the reservation store: {}", reason, cause);
+        }
+        return new ServiceUnavailableException("Reservation store stopped, the change is kept only if the journal saved it"
+                + " and recovers on restart: " + reason);
+    }
+
+    /**
+     * Called under the write lock, with the new reservation's id taken before.
+     */
+    private List<ReservationEvent> reschedule(Long previousReservationId, JournalReservation stored, Long scheduleId,
+                                              Deque<Long> ids) {
+        Reservation previousReservation = this.toReservation(this.findLive(previousReservationId, stored));
+        if (scheduleId.equals(previousReservation.getSchedule().getId())) {
+            throw new IllegalArgumentException("Cannot reschedule to the same slot.");
+        }
+        this.validateCancellation(previousReservation);
+        ReservationEvent booked = this.book(previousReservation.getGuest() != null ? previousReservation.getGuest().getId() : null,
+                Collections.singletonList(scheduleId), ids).get(0);
+
+        BigDecimal refundValue = getRefundValue(previousReservation);
+        ReservationEvent rescheduled = this.closingEvent(ReservationEventType.RESCHEDULED, previousReservation,
+                refundValue, booked.getReservationId());
+        meterRegistry.counter("tenniscourts.reservations.reschedules", "refundTier",
+                refundTier(refundValue, this.withValue(previousReservation, rescheduled.getValue()))).increment();
+        return Arrays.asList(booked, rescheduled);
+    }
+
+    /**
+     * Checks the guest in the database and takes the reservation ids before the booking is written.
+     */
+    private List<JournalReservation> bookWithNewIds(Long guestId, List<Long> scheduleIds) {
+        if (guestId == null || !guestRepository.existsById(guestId)) {
+            throw new EntityNotFoundException("Guest not found.");
+        }
+        Deque<Long> ids = this.takeReservationIds(scheduleIds.size());
+        try {
+            return this.write(() -> this.book(guestId, scheduleIds, ids));
+        } finally {
+            reservationIds.addAll(ids);
+        }
+    }
+
+    /**
+     * Called under the write lock, for a guest that was found in the database before.
+     */
+    private List<ReservationEvent> book(Long guestId, List<Long> scheduleIds, Deque<Long> ids) {
+        if (guestId == null || deletedGuests.contains(guestId)) {
+            throw new EntityNotFoundException("Guest not found.");
+        }
+
+        Map<Long, ScheduleSlotView> slots = new LinkedHashMap<>();
+        scheduleIds.forEach(scheduleId -> slotAvailabilityIndex.findSlot(scheduleId).ifPresent(slot -> slots.put(scheduleId, slot)));
+        if (slots.size() != scheduleIds.size()) {
+            throw new EntityNotFoundException(scheduleIds.size() == 1 ? "Schedule not found."
+                    : "Schedules not found: " + scheduleIds.stream().filter(id -> !slots.containsKey(id)).collect(Collectors.toList()));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (slots.values().stream().anyMatch(slot -> slot.getStartDateTime().isBefore(now))) {
+            throw new IllegalArgumentException("Can book only future dates.");
+        }
+
+        Set<Long> bookedScheduleIds = scheduleIds.stream()
+                .filter(scheduleId -> model.findBookedReservationId(scheduleId).isPresent())
+                .collect(Collectors.toSet());
+        if (!bookedScheduleIds.isEmpty()) {
+            meterRegistry.counter("tenniscourts.booking.conflicts", "reason", "already_booked").increment();
+            throw new AlreadyExistsEntityException(scheduleIds.size() == 1 ? "Schedule already booked."
+                    : "Schedules already booked: " + bookedScheduleIds);
+        }
+
+        return scheduleIds.stream()
+                .map(scheduleId -> ReservationEvent.builder()
+                        .eventType(ReservationEventType.BOOKED)
+                        .reservationId(ids.remove())
+                        .scheduleId(scheduleId)
+                        .guestId(guestId)
+                        .value(RESERVATION_DEPOSIT)
+                        .occurredAt(now)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private ReservationEvent closingEvent(ReservationEventType eventType, Reservation reservation, BigDecimal refundValue,
+                                          Long relatedReservationId) {
+        return ReservationEvent.builder()
+                .eventType(eventType)
+                .reservationId(reservation.getId())
+                .scheduleId(reservation.getSchedule().getId())
+                .guestId(reservation.getGuest() != null ? reservation.getGuest().getId() : null)
+                .relatedReservationId(relatedReservationId)
+                .value(reservation.getValue().subtract(refundValue))
+                .refundValue(refundValue)
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * The reservation as the database has it when the model does not hold it, because its schedule
+     * ended before the model was loaded. Read before the write lock is taken.
+     */
+    private JournalReservation findStored(Long reservationId) {
+        if (model.find(reservationId).isPresent()) {
+            return null;
+        }
+        return reservationRepository.findWithGuestAndScheduleById(reservationId)
+                .map(entity -> JournalReservation.builder()
+                        .id(entity.getId())
+                        .guestId(entity.getGuest() != null ? entity.getGuest().getId() : null)
+                        .scheduleId(entity.getSchedule().getId())
+                        .reservationStatus(entity.getReservationStatus())
+                        .value(entity.getValue())
+                        .refundValue(entity.getRefundValue())
+                        .checkInDateTime(entity.getCheckInDateTime())
+                        .build())
+                .orElse(null);
+    }
+
+    /**
+     * The reservation as the model has it, or as it was read from the database before, in which case it
+     * is added to the model. Called under the write lock.
+     */
+    private JournalReservation findLive(Long reservationId, JournalReservation stored) {
+        return model.find(reservationId).orElseGet(() -> {
+            if (stored == null) {
+                throw new EntityNotFoundException("Reservation not found.");
+            }
+            model.put(stored);
+            return stored;
+        });
+    }
+
+    /**
+     * Takes ids for new reservations from the block fetched last, or fetches the next block of the
+     * sequence. Ids a change does not use go back with {@code reservationIds.addAll}.
+     */
+    private Deque<Long> takeReservationIds(int count) {
+        Deque<Long> ids = new ArrayDeque<>(count);
+        while (ids.size() < count) {
+            Long id = reservationIds.poll();
+            if (id == null) {
+                long first = jdbcTemplate.queryForObject(NEXT_RESERVATION_IDS, Long.class);
+                ids.add(first);
+                for (long next = first + 1; next < first + RESERVATION_ID_BLOCK_SIZE; next++) {
+                    reservationIds.add(next);
+                }
+            } else {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * A detached reservation with its guest and schedule, for the validation and mapping shared with
+     * the JPA store. The court only has its id, its name is added for responses outside the write lock.
+     */
+    private Reservation toReservation(JournalReservation state) {
+        ScheduleSlotView slot = slotAvailabilityIndex.findSlot(state.getScheduleId()).orElseThrow(() -> {
+            throw new EntityNotFoundException("Schedule not found.");
+        });
+        TennisCourt tennisCourt = new TennisCourt(null);
+        tennisCourt.setId(slot.getTennisCourtId());
+
+        Schedule schedule = Schedule.builder()
+                .tennisCourt(tennisCourt)
+                .startDateTime(slot.getStartDateTime())
+                .endDateTime(slot.getStartDateTime().plusHours(SLOT_HOURS))
+                .build();
+        schedule.setId(slot.getId());
+
+        Guest guest = null;
+        if (state.getGuestId() != null) {
+            guest = Guest.builder().build();
+            guest.setId(state.getGuestId());
+        }
+
+        Reservation reservation = Reservation.builder()
+                .guest(guest)
+                .schedule(schedule)
+                .value(state.getValue())
+                .reservationStatus(state.getReservationStatus())
+                .refundValue(state.getRefundValue())
+                .checkInDateTime(state.getCheckInDateTime())
+                .build();
+        reservation.setId(state.getId());
+        return reservation;
+    }
+
+    private Reservation withValue(Reservation reservation, BigDecimal value) {
+        reservation.setValue(value);
+        return reservation;
+    }
+
+    private ReservationDTO toDTO(JournalReservation state) {
+        Reservation reservation = this.toReservation(state);
+        TennisCourt tennisCourt = reservation.getSchedule().getTennisCourt();
+        tennisCourt.setName(tennisCourtService.findTennisCourtById(tennisCourt.getId()).getName());
+        return reservationMapper.map(reservation);
+    }
+
+    private ReservationModel loadFromDatabase(long projectedSequence) {
+        ReservationModel loaded = new ReservationModel(projectedSequence);
+        jdbcTemplate.query(FIND_LIVE_RESERVATIONS, rs -> {
+            Timestamp checkIn = rs.getTimestamp(7);
+            loaded.put(JournalReservation.builder()
+                    .id(rs.getLong(1))
+                    .guestId(nullableLong(rs, 2))
+                    .scheduleId(rs.getLong(3))
+                    .reservationStatus(ReservationStatus.values()[rs.getInt(4)])
+                    .value(rs.getBigDecimal(5))
+                    .refundValue(rs.getBigDecimal(6))
+                    .checkInDateTime(checkIn != null ? checkIn.toLocalDateTime() : null)
+                    .build());
+        }, Timestamp.valueOf(LocalDateTime.now()));
+        log.info("No reservation snapshot yet, loaded {} reservations of upcoming schedules from the database", loaded.size());
+        return loaded;
+    }
+
+    private static Long nullableLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,407 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.outbox.ReservationEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of reservation events on local disk.
+ * <p>
+ * The journal is a series of segment files named after the sequence of their first event. Each is
+ * preallocated to {@code tenniscourts.journal.segment-size} and memory-mapped, and a record is its
+ * payload length, a CRC of sequence and payload, the sequence and the payload. Appending only copies
+ * the record into the mapping. A single sync thread forces the mapping to disk whenever something was
+ * appended and then wakes up everyone waiting for a sequence it covered, so concurrent appends share
+ * one fsync. On open the segments are scanned and the first record that is torn or out of sequence
+ * ends the journal.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "tenniscourts.reservations.store", havingValue = "journal")
+public class ReservationJournal implements MeterBinder {
+
+    private static final int HEADER_BYTES = 16;
+
+    private static final int MAX_PAYLOAD_BYTES = 512;
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("(\\d{20})\\.journal");
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(MAX_PAYLOAD_BYTES);
+
+    private final CRC32 crc = new CRC32();
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final Condition appended = syncLock.newCondition();
+
+    private final Condition synced = syncLock.newCondition();
+
+    private final LongAdder appends = new LongAdder();
+
+    private final LongAdder syncs = new LongAdder();
+
+    private long nextSequence;
+
+    private MappedByteBuffer buffer;
+
+    private long written;
+
+    private long durable;
+
+    private boolean closed;
+
+    private RuntimeException failure;
+
+    private Thread syncThread;
+
+    public ReservationJournal(@Value("${tenniscourts.journal.dir:./data/journal}") String directory,
+                              @Value("${tenniscourts.journal.segment-size:64MB}") DataSize segmentSize) {
+        this.directory = Paths.get(directory);
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Scans the journal, hands every intact event after {@code afterSequence} to the consumer in order
+     * and gets ready to append. New events continue the journal, but never at or below
+     * {@code lastKnownSequence}, which is the last sequence snapshots or the database have seen.
+     * Refuses to open when events after {@code afterSequence} are missing or the journal ends before
+     * {@code lastKnownSequence}, which an empty directory does not.
+     */
+    public synchronized void open(long afterSequence, long lastKnownSequence, Consumer<ReservationEvent> consumer) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+
+        if (!segments.isEmpty() && segments.firstKey() > afterSequence + 1) {
+            throw new IllegalStateException("Reservation journal starts at event " + segments.firstKey() + ", events "
+                    + (afterSequence + 1) + " to " + (segments.firstKey() - 1) + " are missing");
+        }
+
+        long lastSequence = 0;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            Long nextFirstSequence = segments.higherKey(segment.getKey());
+            if (lastSequence > 0 && segment.getKey() != lastSequence + 1) {
+                throw new IllegalStateException("Reservation journal segment " + segment.getValue() + " does not follow event " + lastSequence);
+            }
+            if (nextFirstSequence != null && nextFirstSequence <= afterSequence + 1) {
+                lastSequence = nextFirstSequence - 1;
+                continue;
+            }
+            boolean last = nextFirstSequence == null;
+            try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(last ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                        0, last ? Math.max(segmentSize, channel.size()) : channel.size());
+                lastSequence = this.scan(mapped, segment.getKey(), afterSequence, consumer);
+                if (last) {
+                    this.truncateTornTail(mapped);
+                    buffer = mapped;
+                } else if (lastSequence != nextFirstSequence - 1) {
+                    throw new IllegalStateException("Reservation journal segment " + segment.getValue() + " ends after event " + lastSequence);
+                }
+            }
+        }
+
+        if (lastSequence < lastKnownSequence && !segments.isEmpty()) {
+            throw new IllegalStateException("Reservation journal ends at event " + lastSequence + " but event "
+                    + lastKnownSequence + " was seen before, events after it are lost or the journal belongs elsewhere");
+        }
+        nextSequence = Math.max(lastSequence, lastKnownSequence) + 1;
+        if (buffer == null) {
+            this.roll();
+        }
+        written = durable = nextSequence - 1;
+        log.info("Reservation journal opened at event {} with {} segments", written, segments.size());
+
+        syncThread = new Thread(this::sync, "journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * Writes the event to the journal and returns it with its sequence as event id. It is durable once
+     * {@link #awaitDurable} returns for that sequence.
+     */
+    public synchronized ReservationEvent append(ReservationEvent event) {
+        syncLock.lock();
+        try {
+            if (failure != null) {
+                throw new IllegalStateException("Reservation journal failed, no more changes are accepted.", failure);
+            }
+            if (closed || buffer == null) {
+                throw new IllegalStateException("Reservation journal is not open.");
+            }
+        } finally {
+            syncLock.unlock();
+        }
+        payload.reset();
+        try {
+            JournalCodec.writeEvent(new DataOutputStream(payload), event);
+            if (payload.size() > MAX_PAYLOAD_BYTES) {
+                throw new IllegalArgumentException("Reservation event too large for the journal: " + event);
+            }
+            if (buffer.remaining() < HEADER_BYTES + payload.size()) {
+                this.roll();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        long sequence = nextSequence++;
+        int position = buffer.position();
+        buffer.putLong(position + 8, sequence);
+        buffer.position(position + HEADER_BYTES);
+        buffer.put(payload.toByteArray());
+        buffer.putInt(position + 4, this.checksum(buffer, position, payload.size()));
+        buffer.putInt(position, payload.size());
+
+        appends.increment();
+        syncLock.lock();
+        try {
+            written = sequence;
+            appended.signal();
+        } finally {
+            syncLock.unlock();
+        }
+        return event.toBuilder().eventId(sequence).build();
+    }
+
+    /**
+     * Waits until the event with the given sequence is on disk and tells whether it got there in time.
+     */
+    public boolean awaitDurable(long sequence, long timeoutMillis) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        syncLock.lock();
+        try {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw new IllegalStateException("Reservation journal failed to sync.", failure);
+                }
+                if (closed || remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = synced.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments that only hold events up to the given sequence. The segment being appended
+     * to is always kept.
+     */
+    public synchronized int deleteSegmentsThrough(long sequence) throws IOException {
+        int deleted = 0;
+        Iterator<Map.Entry<Long, Path>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Path> segment = iterator.next();
+            Long nextFirstSequence = segments.higherKey(segment.getKey());
+            if (nextFirstSequence == null || nextFirstSequence - 1 > sequence) {
+                break;
+            }
+            Files.delete(segment.getValue());
+            iterator.remove();
+            deleted++;
+        }
+        return deleted;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        syncLock.lock();
+        try {
+            closed = true;
+            appended.signal();
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+        if (syncThread != null) {
+            syncThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tenniscourts.journal.appends", appends, LongAdder::sum)
+                .description("Reservation events written to the journal")
+                .register(registry);
+        FunctionCounter.builder("tenniscourts.journal.syncs", syncs, LongAdder::sum)
+                .description("Journal syncs to disk, each covering every event appended before it")
+                .register(registry);
+    }
+
+    private void sync() {
+        while (true) {
+            MappedByteBuffer target;
+            long sequence;
+            syncLock.lock();
+            try {
+                while (!closed && written == durable) {
+                    appended.awaitUninterruptibly();
+                }
+                if (written == durable) {
+                    return;
+                }
+                target = buffer;
+                sequence = written;
+            } finally {
+                syncLock.unlock();
+            }
+
+            RuntimeException syncFailure = null;
+            try {
+                target.force();
+                syncs.increment();
+            } catch (RuntimeException ex) {
+                log.error("Reservation journal failed to sync up to event {}", sequence, ex);
+                syncFailure = ex;
+            }
+
+            syncLock.lock();
+            try {
+                if (syncFailure != null) {
+                    failure = syncFailure;
+                } else {
+                    durable = sequence;
+                }
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+            if (syncFailure != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment at the next sequence, once the current one is on disk.
+     */
+    private void roll() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+        }
+        Path file = directory.resolve(String.format("%020d.journal", nextSequence));
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException ex) {
+            log.debug("Cannot sync directory {}: {}", directory, ex.getMessage());
+        }
+        segments.put(nextSequence, file);
+        syncLock.lock();
+        try {
+            buffer = mapped;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records of a segment from its start, leaves the buffer positioned after the last intact
+     * one and returns its sequence.
+     */
+    private long scan(MappedByteBuffer segment, long firstSequence, long afterSequence,
+                      Consumer<ReservationEvent> consumer) throws IOException {
+        long sequence = firstSequence;
+        int position = 0;
+        while (position + HEADER_BYTES <= segment.capacity()) {
+            int length = segment.getInt(position);
+            if (length <= 0 || length > MAX_PAYLOAD_BYTES || position + HEADER_BYTES + length > segment.capacity()
+                    || segment.getLong(position + 8) != sequence
+                    || segment.getInt(position + 4) != this.checksum(segment, position, length)) {
+                break;
+            }
+            if (sequence > afterSequence) {
+                byte[] bytes = new byte[length];
+                ByteBuffer record = segment.duplicate();
+                record.position(position + HEADER_BYTES);
+                record.get(bytes);
+                consumer.accept(JournalCodec.readEvent(new DataInputStream(new ByteArrayInputStream(bytes)), sequence));
+            }
+            sequence++;
+            position += HEADER_BYTES + length;
+        }
+        segment.position(position);
+        return sequence - 1;
+    }
+
+    /**
+     * Clears what a crash left after the last intact record, so it cannot be mistaken for records
+     * appended later.
+     */
+    private void truncateTornTail(MappedByteBuffer segment) {
+        int position = segment.position();
+        if (position + Integer.BYTES > segment.capacity() || segment.getInt(position) == 0) {
+            return;
+        }
+        log.warn("Clearing torn reservation journal records after offset {}", position);
+        for (int offset = position; offset < segment.capacity(); offset++) {
+            segment.put(offset, (byte) 0);
+        }
+        segment.force();
+    }
+
+    private int checksum(ByteBuffer segment, int position, int length) {
+        ByteBuffer covered = segment.duplicate();
+        covered.position(position + 8);
+        covered.limit(position + HEADER_BYTES + length);
+        crc.reset();
+        crc.update(covered);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,240 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventType;
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The reservations of the journal store as of the last event applied to it. Lookups need no lock;
+ * changes are applied one at a time by the store, under its write lock.
+ * <p>
+ * A snapshot holds the whole model and the sequence it is at, in a file named after that sequence.
+ * It is written to a temporary file that is synced and then moved in place, and it ends with a CRC, so
+ * a snapshot file is either complete or ignored.
+ */
+@Slf4j
+class ReservationModel {
+
+    private static final int SNAPSHOT_MAGIC = 0x54434a53;
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d{20})\\.bin");
+
+    private final ConcurrentMap<Long, JournalReservation> reservations = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Long> bookedReservationsBySchedule = new ConcurrentHashMap<>();
+
+    private volatile long sequence;
+
+    ReservationModel(long sequence) {
+        this.sequence = sequence;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int size() {
+        return reservations.size();
+    }
+
+    Optional<JournalReservation> find(Long reservationId) {
+        return Optional.ofNullable(reservations.get(reservationId));
+    }
+
+    /**
+     * The {@code READY_TO_PLAY} reservation of a schedule, if any.
+     */
+    Optional<Long> findBookedReservationId(Long scheduleId) {
+        return Optional.ofNullable(bookedReservationsBySchedule.get(scheduleId));
+    }
+
+    boolean hasReservations(Long guestId) {
+        return reservations.values().stream().anyMatch(reservation -> guestId.equals(reservation.getGuestId()));
+    }
+
+    /**
+     * Adds a reservation read from the database, without moving the model's sequence.
+     */
+    void put(JournalReservation reservation) {
+        this.replace(reservations.get(reservation.getId()), reservation);
+    }
+
+    /**
+     * Applies one journal event and returns the reservation as it is after it. Changes to reservations
+     * the model does not hold, which were pruned or never loaded because their schedule is over, only
+     * move the sequence and return {@code null}.
+     */
+    JournalReservation apply(ReservationEvent event) {
+        JournalReservation current = reservations.get(event.getReservationId());
+        if (current == null && event.getEventType() != ReservationEventType.BOOKED) {
+            sequence = event.getEventId();
+            return null;
+        }
+        JournalReservation updated;
+        switch (event.getEventType()) {
+            case BOOKED:
+                updated = JournalReservation.builder()
+                        .id(event.getReservationId())
+                        .guestId(event.getGuestId())
+                        .scheduleId(event.getScheduleId())
+                        .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                        .value(event.getValue())
+                        .sequence(event.getEventId())
+                        .build();
+                break;
+            case CANCELLED:
+            case RESCHEDULED:
+                updated = current.toBuilder()
+                        .reservationStatus(event.getEventType() == ReservationEventType.CANCELLED
+                                ? ReservationStatus.CANCELLED : ReservationStatus.RESCHEDULED)
+                        .value(event.getValue())
+                        .refundValue(event.getRefundValue())
+                        .sequence(event.getEventId())
+                        .build();
+                break;
+            case CHECKED_IN:
+                updated = current.toBuilder()
+                        .checkInDateTime(event.getOccurredAt())
+                        .sequence(event.getEventId())
+                        .build();
+                break;
+            default:
+                throw new IllegalStateException("Unknown reservation event type " + event.getEventType());
+        }
+        this.replace(current, updated);
+        sequence = event.getEventId();
+        return updated;
+    }
+
+    /**
+     * Drops the reservations matching the filter and returns how many there were.
+     */
+    int prune(Predicate<JournalReservation> filter) {
+        List<JournalReservation> pruned = reservations.values().stream().filter(filter).collect(Collectors.toList());
+        pruned.forEach(reservation -> this.replace(reservation, null));
+        return pruned.size();
+    }
+
+    ReservationModel copy() {
+        ReservationModel copy = new ReservationModel(sequence);
+        reservations.values().forEach(copy::put);
+        return copy;
+    }
+
+    Path writeSnapshot(Path directory) throws IOException {
+        Path target = directory.resolve(String.format("snapshot-%020d.bin", sequence));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc)));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(sequence);
+            out.writeInt(reservations.size());
+            for (JournalReservation reservation : reservations.values()) {
+                JournalCodec.writeReservation(out, reservation);
+            }
+            out.flush();
+            new DataOutputStream(file).writeLong(crc.getValue());
+            file.getChannel().force(true);
+        }
+        return Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the newest snapshot of the directory that is intact, skipping damaged ones.
+     */
+    static Optional<ReservationModel> readLatestSnapshot(Path directory) throws IOException {
+        for (Path snapshot : snapshots(directory, Long.MAX_VALUE)) {
+            try {
+                return Optional.of(readSnapshot(snapshot));
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Ignoring damaged reservation snapshot {}: {}", snapshot, ex.toString());
+            }
+        }
+        return Optional.empty();
+    }
+
+    static void deleteSnapshotsBefore(Path directory, long sequence) throws IOException {
+        for (Path snapshot : snapshots(directory, sequence - 1)) {
+            Files.delete(snapshot);
+        }
+    }
+
+    private static ReservationModel readSnapshot(Path snapshot) throws IOException {
+        byte[] content = Files.readAllBytes(snapshot);
+        if (content.length < Long.BYTES) {
+            throw new IOException("Snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - Long.BYTES);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        in.skipBytes(content.length - Long.BYTES);
+        if (in.readLong() != crc.getValue()) {
+            throw new IOException("Snapshot checksum does not match");
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - Long.BYTES));
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Not a reservation snapshot of a known version");
+        }
+        ReservationModel model = new ReservationModel(in.readLong());
+        for (int count = in.readInt(); count > 0; count--) {
+            model.put(JournalCodec.readReservation(in));
+        }
+        return model;
+    }
+
+    /**
+     * Snapshot files up to the given sequence, newest first.
+     */
+    private static List<Path> snapshots(Path directory, long maxSequence) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        Matcher matcher = SNAPSHOT_FILE.matcher(file.getFileName().toString());
+                        return matcher.matches() && Long.parseLong(matcher.group(1)) <= maxSequence;
+                    })
+                    .sorted((first, second) -> second.getFileName().compareTo(first.getFileName()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void replace(JournalReservation current, JournalReservation updated) {
+        if (current != null && current.getReservationStatus() == ReservationStatus.READY_TO_PLAY) {
+            bookedReservationsBySchedule.remove(current.getScheduleId(), current.getId());
+        }
+        if (updated == null) {
+            reservations.remove(current.getId());
+            return;
+        }
+        reservations.put(updated.getId(), updated);
+        if (updated.getReservationStatus() == ReservationStatus.READY_TO_PLAY) {
+            bookedReservationsBySchedule.put(updated.getScheduleId(), updated.getId());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.tenniscourts.outbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbox to the {@link ReservationEventConsumer}s.
+ * <p>
+ * Pending events are claimed in the order they occurred, one batch at a time, for
+ * {@code tenniscourts.outbox.claim-timeout}, so several nodes can dispatch the same outbox without
+ * delivering an event twice, and split into lanes by schedule id. Each lane delivers its events one
+ * after the other, so events of a schedule keep their order while different schedules are delivered
+ * in parallel. When a consumer fails, the event is retried with exponential backoff and later events
+ * of its schedule are not claimed until it succeeds; after {@code tenniscourts.outbox.max-attempts} it
+ * is parked as {@code FAILED} so the schedule moves on. Delivered events are marked in one statement
+ * per batch and purged after {@code tenniscourts.outbox.retention}.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class OutboxDispatcher implements MeterBinder {
+
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(10);
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final List<ReservationEventConsumer> consumers;
+
+    private final ExecutorService lanes;
+
+    private final int laneCount;
+
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    private final Duration retention;
+
+    private final Duration claimTimeout;
+
+    private final String node = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final AtomicLong claims = new AtomicLong();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<ReservationEventConsumer> consumers,
+                            @Value("${tenniscourts.outbox.lanes:4}") int laneCount,
+                            @Value("${tenniscourts.outbox.batch-size:500}") int batchSize,
+                            @Value("${tenniscourts.outbox.max-attempts:12}") int maxAttempts,
+                            @Value("${tenniscourts.outbox.retention:7d}") Duration retention,
+                            @Value("${tenniscourts.outbox.claim-timeout:5m}") Duration claimTimeout) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.consumers = consumers;
+        this.laneCount = laneCount;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retention = retention;
+        this.claimTimeout = claimTimeout;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.lanes = Executors.newFixedThreadPool(laneCount, runnable -> {
+            Thread thread = new Thread(runnable, "outbox-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${tenniscourts.outbox.poll-interval-ms:200}")
+    public void dispatch() {
+        List<Long> ids;
+        boolean settledAll;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            ids = outboxEventRepository.findDispatchableIds(OutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                lagMillis.set(0);
+                return;
+            }
+            String claimedBy = node + "#" + claims.incrementAndGet();
+            outboxEventRepository.claim(ids, OutboxStatus.PENDING, claimedBy, now.plus(claimTimeout), now);
+            try {
+                List<OutboxEvent> batch = outboxEventRepository.findClaimed(claimedBy, OutboxStatus.PENDING);
+                lagMillis.set(batch.isEmpty() ? 0 : Duration.between(batch.get(0).getOccurredAt(), now).toMillis());
+                settledAll = this.dispatch(batch) == batch.size();
+            } finally {
+                outboxEventRepository.release(claimedBy);
+            }
+        } while (settledAll && ids.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${tenniscourts.outbox.purge-cron:0 15 * * * *}")
+    public void purge() {
+        int purged = outboxEventRepository.deleteDispatchedBefore(OutboxStatus.DISPATCHED, LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} dispatched outbox events", purged);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tenniscourts.outbox.delivered", delivered, LongAdder::sum).register(registry);
+        FunctionCounter.builder("tenniscourts.outbox.retried", retried, LongAdder::sum).register(registry);
+        FunctionCounter.builder("tenniscourts.outbox.failed", failed, LongAdder::sum).register(registry);
+        Gauge.builder("tenniscourts.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest pending outbox event at the last poll")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * Delivers one batch and returns how many events were settled, delivered or parked, so the caller
+     * knows whether to read on right away.
+     */
+    private int dispatch(List<OutboxEvent> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<List<OutboxEvent>> eventsByLane = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            eventsByLane.add(new ArrayList<>());
+        }
+        batch.forEach(event -> eventsByLane.get(lane(event.getScheduleId())).add(event));
+
+        List<CompletableFuture<List<Long>>> lanesDelivered = eventsByLane.stream()
+                .filter(events -> !events.isEmpty())
+                .map(events -> CompletableFuture.supplyAsync(() -> this.deliver(events), lanes))
+                .collect(Collectors.toList());
+        List<Long> deliveredIds = lanesDelivered.stream()
+                .map(CompletableFuture::join)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+
+        if (!deliveredIds.isEmpty()) {
+            outboxEventRepository.markDispatched(deliveredIds, OutboxStatus.DISPATCHED, LocalDateTime.now());
+            delivered.add(deliveredIds.size());
+        }
+        return deliveredIds.size() + (int) batch.stream().filter(event -> event.getStatus() == OutboxStatus.FAILED).count();
+    }
+
+    private List<Long> deliver(List<OutboxEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> heldBackSchedules = new HashSet<>();
+        List<Long> deliveredIds = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            if (heldBackSchedules.contains(event.getScheduleId())) {
+                continue;
+            }
+            if (event.getNextAttemptAt() != null && event.getNextAttemptAt().isAfter(now)) {
+                heldBackSchedules.add(event.getScheduleId());
+                continue;
+            }
+            try {
+                ReservationEvent reservationEvent = toReservationEvent(event);
+                consumers.forEach(consumer -> consumer.accept(reservationEvent));
+                deliveredIds.add(event.getId());
+            } catch (RuntimeException ex) {
+                this.retryLater(event, ex);
+                if (event.getStatus() == OutboxStatus.PENDING) {
+                    heldBackSchedules.add(event.getScheduleId());
+                }
+            }
+        }
+        return deliveredIds;
+    }
+
+    private void retryLater(OutboxEvent event, RuntimeException ex) {
+        event.setAttempts(event.getAttempts() + 1);
+        String error = String.valueOf(ex);
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(OutboxStatus.FAILED);
+            failed.increment();
+            log.error("Giving up on outbox event {} after {} attempts", event.getId(), event.getAttempts(), ex);
+        } else {
+            Duration delay = FIRST_RETRY_DELAY.multipliedBy(1L << Math.min(event.getAttempts() - 1, 20));
+            event.setNextAttemptAt(LocalDateTime.now().plus(delay.compareTo(MAX_RETRY_DELAY) < 0 ? delay : MAX_RETRY_DELAY));
+            retried.increment();
+            log.warn("Outbox event {} failed on attempt {}, retrying at {}", event.getId(), event.getAttempts(), event.getNextAttemptAt(), ex);
+        }
+        outboxEventRepository.save(event);
+    }
+
+    private int lane(Long scheduleId) {
+        int hash = scheduleId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), laneCount);
+    }
+
+    private static ReservationEvent toReservationEvent(OutboxEvent event) {
+        return ReservationEvent.builder()
+                .eventId(event.getId())
+                .eventType(event.getEventType())
+                .reservationId(event.getReservationId())
+                .scheduleId(event.getScheduleId())
+                .guestId(event.getGuestId())
+                .relatedReservationId(event.getRelatedReservationId())
+                .value(event.getValue())
+                .refundValue(event.getRefundValue())
+                .occurredAt(event.getOccurredAt())
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.tenniscourts.outbox;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A reservation change waiting to be handed to the {@link ReservationEventConsumer}s, written in the
+ * transaction of the change itself. Events are delivered in the order they occurred; ids, which are
+ * allocated in blocks per node, only break ties. A dispatcher claims the events it delivers with
+ * {@code claimedBy} until {@code claimedUntil}, so no other node delivers them meanwhile.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_outbox_event_status", columnList = "status, occurredAt, id"),
+        @Index(name = "idx_outbox_event_schedule", columnList = "scheduleId, status")})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Builder
+public class OutboxEvent extends BaseEntity<Long> {
+
+    @NotNull
+    private ReservationEventType eventType;
+
+    @NotNull
+    private Long reservationId;
+
+    @NotNull
+    private Long scheduleId;
+
+    private Long guestId;
+
+    private Long relatedReservationId;
+
+    private BigDecimal value;
+
+    private BigDecimal refundValue;
+
+    @NotNull
+    private LocalDateTime occurredAt;
+
+    @NotNull
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime dispatchedAt;
+
+    private String lastError;
+
+    private String claimedBy;
+
+    private LocalDateTime claimedUntil;
+}
@@ -0,0 +1,73 @@
+package com.tenniscourts.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Pending events that are due and not claimed, leaving out every schedule whose earliest pending
+     * event waits for a retry or is claimed by another dispatcher, so a stuck schedule takes no room
+     * in the batch.
+     */
+    @Query("select e.id from OutboxEvent e where e.status = :pending"
+            + " and (e.nextAttemptAt is null or e.nextAttemptAt <= :now)"
+            + " and (e.claimedUntil is null or e.claimedUntil < :now)"
+            + " and not exists (select p.id from OutboxEvent p where p.scheduleId = e.scheduleId and p.status = :pending"
+            + " and (p.occurredAt < e.occurredAt or (p.occurredAt = e.occurredAt and p.id < e.id))"
+            + " and (p.nextAttemptAt > :now or p.claimedUntil >= :now))"
+            + " order by e.occurredAt, e.id")
+    List<Long> findDispatchableIds(@Param("pending") OutboxStatus pending,
+                                   @Param("now") LocalDateTime now,
+                                   Pageable pageable);
+
+    /**
+     * Claims those of the events that are still pending and unclaimed; the others went to another
+     * dispatcher in the meantime.
+     */
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedBy = :claimedBy, e.claimedUntil = :claimedUntil"
+            + " where e.id in :ids and e.status = :pending and (e.claimedUntil is null or e.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("pending") OutboxStatus pending,
+              @Param("claimedBy") String claimedBy,
+              @Param("claimedUntil") LocalDateTime claimedUntil,
+              @Param("now") LocalDateTime now);
+
+    /**
+     * Claimed events in delivery order, without those that another dispatcher claimed an earlier
+     * event of the same schedule from under this claim.
+     */
+    @Query("select e from OutboxEvent e where e.claimedBy = :claimedBy and e.status = :pending"
+            + " and not exists (select p.id from OutboxEvent p where p.scheduleId = e.scheduleId and p.status = :pending"
+            + " and (p.occurredAt < e.occurredAt or (p.occurredAt = e.occurredAt and p.id < e.id))"
+            + " and (p.claimedBy is null or p.claimedBy <> :claimedBy))"
+            + " order by e.occurredAt, e.id")
+    List<OutboxEvent> findClaimed(@Param("claimedBy") String claimedBy, @Param("pending") OutboxStatus pending);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedBy = null, e.claimedUntil = null where e.claimedBy = :claimedBy")
+    int release(@Param("claimedBy") String claimedBy);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.dispatchedAt = :dispatchedAt where e.id in :ids")
+    int markDispatched(@Param("ids") Collection<Long> ids,
+                       @Param("status") OutboxStatus status,
+                       @Param("dispatchedAt") LocalDateTime dispatchedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent e where e.status = :status and e.dispatchedAt < :before")
+    int deleteDispatchedBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+}
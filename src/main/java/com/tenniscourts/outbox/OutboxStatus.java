@@ -0,0 +1,8 @@
+package com.tenniscourts.outbox;
+
+/**
+ * Stored by ordinal, so new statuses must be appended.
+ */
+public enum OutboxStatus {
+    PENDING, DISPATCHED, FAILED
+}
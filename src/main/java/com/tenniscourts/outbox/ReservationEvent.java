@@ -0,0 +1,36 @@
+package com.tenniscourts.outbox;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * What happened to a reservation. For {@code RESCHEDULED} events {@code relatedReservationId} is the
+ * reservation that replaced this one.
+ */
+@Getter
+@Builder(toBuilder = true)
+@ToString
+public class ReservationEvent {
+
+    private final Long eventId;
+
+    private final ReservationEventType eventType;
+
+    private final Long reservationId;
+
+    private final Long scheduleId;
+
+    private final Long guestId;
+
+    private final Long relatedReservationId;
+
+    private final BigDecimal value;
+
+    private final BigDecimal refundValue;
+
+    private final LocalDateTime occurredAt;
+}
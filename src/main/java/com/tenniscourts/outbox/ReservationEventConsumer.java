@@ -0,0 +1,14 @@
+package com.tenniscourts.outbox;
+
+/**
+ * Reacts to reservation changes after they are committed, off the request path. Every bean of this
+ * type receives every event, in creation order per schedule.
+ * <p>
+ * Delivery is at least once: an event is handed out again when any consumer throws or the node stops
+ * before it is marked dispatched, so consumers must tolerate duplicates, e.g. by remembering
+ * {@link ReservationEvent#getEventId()}.
+ */
+public interface ReservationEventConsumer {
+
+    void accept(ReservationEvent event);
+}
@@ -0,0 +1,29 @@
+package com.tenniscourts.outbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Counts delivered reservation events by type and times how long they took to get from the outbox to
+ * the consumers.
+ */
+@Component
+@AllArgsConstructor
+public class ReservationEventMetrics implements ReservationEventConsumer {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void accept(ReservationEvent event) {
+        Timer.builder("tenniscourts.reservations.events")
+                .description("Delay between a reservation change and the delivery of its event")
+                .tag("type", event.getEventType().name())
+                .register(meterRegistry)
+                .record(Duration.between(event.getOccurredAt(), LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.tenniscourts.outbox;
+
+import com.tenniscourts.reservations.Reservation;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records reservation changes in the outbox. It only joins the caller's transaction, so an event
+ * exists exactly when the change it describes was committed.
+ */
+@Component
+@AllArgsConstructor
+public class ReservationEventPublisher {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(ReservationEventType eventType, Reservation reservation) {
+        publish(eventType, reservation, null);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(ReservationEventType eventType, Reservation reservation, Reservation relatedReservation) {
+        outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(eventType)
+                .reservationId(reservation.getId())
+                .scheduleId(reservation.getSchedule().getId())
+                .guestId(reservation.getGuest() != null ? reservation.getGuest().getId() : null)
+                .relatedReservationId(relatedReservation != null ? relatedReservation.getId() : null)
+                .value(reservation.getValue())
+                .refundValue(reservation.getRefundValue())
+                .occurredAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Records events that already happened elsewhere, keeping their time.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishAll(List<ReservationEvent> events) {
+        outboxEventRepository.saveAll(events.stream()
+                .map(event -> OutboxEvent.builder()
+                        .eventType(event.getEventType())
+                        .reservationId(event.getReservationId())
+                        .scheduleId(event.getScheduleId())
+                        .guestId(event.getGuestId())
+                        .relatedReservationId(event.getRelatedReservationId())
+                        .value(event.getValue())
+                        .refundValue(event.getRefundValue())
+                        .occurredAt(event.getOccurredAt())
+                        .build())
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,8 @@
+package com.tenniscourts.outbox;
+
+/**
+ * Stored by ordinal, so new types must be appended.
+ */
+public enum ReservationEventType {
+    BOOKED, CANCELLED, RESCHEDULED, CHECKED_IN, PLAYED, NO_SHOW
+}
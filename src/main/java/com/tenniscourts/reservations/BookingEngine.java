@@ -0,0 +1,147 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.exceptions.BusinessException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs reservation changes serialized per schedule id.
+ * <p>
+ * Schedule ids are hashed onto a fixed set of lock stripes, so work on different slots runs in
+ * parallel while work on the same slot is executed one at a time, each in its own transaction that
+ * commits before the stripe is released. When several schedules are involved their stripes are taken
+ * in ascending order to avoid deadlocks. The {@code Schedule} version is the guard across nodes: an
+ * optimistic locking failure is retried a bounded number of times before giving up.
+ */
+@Slf4j
+@Component
+public class BookingEngine implements MeterBinder {
+
+    private final ReentrantLock[] stripes;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxAttempts;
+
+    private final long lockTimeoutMillis;
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder contendedLocks = new LongAdder();
+
+    private final LongAdder lockTimeouts = new LongAdder();
+
+    private final LongAdder optimisticLockRetries = new LongAdder();
+
+    private final LongAdder optimisticLockFailures = new LongAdder();
+
+    public BookingEngine(PlatformTransactionManager transactionManager,
+                         @Value("${tenniscourts.booking.lock-stripes:1024}") int lockStripes,
+                         @Value("${tenniscourts.booking.max-attempts:3}") int maxAttempts,
+                         @Value("${tenniscourts.booking.lock-timeout-ms:5000}") long lockTimeoutMillis) {
+        if (Integer.bitCount(lockStripes) != 1) {
+            throw new IllegalArgumentException("tenniscourts.booking.lock-stripes must be a power of two.");
+        }
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    public <T> T execute(Long scheduleId, Supplier<T> work) {
+        return execute(Collections.singleton(scheduleId), work);
+    }
+
+    public <T> T execute(Collection<Long> scheduleIds, Supplier<T> work) {
+        int[] lockedStripes = scheduleIds.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+
+        int locked = 0;
+        try {
+            for (int stripe : lockedStripes) {
+                lock(stripes[stripe]);
+                locked++;
+            }
+            executions.increment();
+            return executeWithRetry(work);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[lockedStripes[i]].unlock();
+            }
+        }
+    }
+
+    public BookingStatsDTO getStats() {
+        return BookingStatsDTO.builder()
+                .executions(executions.sum())
+                .contendedLocks(contendedLocks.sum())
+                .lockTimeouts(lockTimeouts.sum())
+                .optimisticLockRetries(optimisticLockRetries.sum())
+                .optimisticLockFailures(optimisticLockFailures.sum())
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tenniscourts.booking.executions", executions, LongAdder::sum).register(registry);
+        FunctionCounter.builder("tenniscourts.booking.contended.locks", contendedLocks, LongAdder::sum).register(registry);
+        FunctionCounter.builder("tenniscourts.booking.conflicts", lockTimeouts, LongAdder::sum)
+                .tag("reason", "lock_timeout").register(registry);
+        FunctionCounter.builder("tenniscourts.booking.conflicts", optimisticLockFailures, LongAdder::sum)
+                .tag("reason", "concurrent_update").register(registry);
+        FunctionCounter.builder("tenniscourts.booking.optimistic.retries", optimisticLockRetries, LongAdder::sum).register(registry);
+    }
+
+    private <T> T executeWithRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException ex) {
+                if (attempt >= maxAttempts) {
+                    optimisticLockFailures.increment();
+                    log.warn("Giving up after {} optimistic locking failures", attempt, ex);
+                    throw new BusinessException("Schedule was changed concurrently, please try again.");
+                }
+                optimisticLockRetries.increment();
+            }
+        }
+    }
+
+    private void lock(ReentrantLock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        contendedLocks.increment();
+        try {
+            if (!lock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                lockTimeouts.increment();
+                throw new BusinessException("Schedule is busy, please try again.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Interrupted while waiting for the schedule.");
+        }
+    }
+
+    private int stripe(Long scheduleId) {
+        int hash = scheduleId.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,26 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingStatsDTO {
+
+    private long executions;
+
+    private long contendedLocks;
+
+    private long lockTimeouts;
+
+    private long optimisticLockRetries;
+
+    private long optimisticLockFailures;
+
+}
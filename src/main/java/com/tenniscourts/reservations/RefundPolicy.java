@@ -0,0 +1,36 @@
+package com.tenniscourts.reservations;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * How much of the value is returned when a reservation is cancelled or rescheduled.
+ */
+public final class RefundPolicy {
+
+    private static final long FULL_REFUND_HOURS_IN_ADVANCE = 24;
+
+    private RefundPolicy() {
+    }
+
+    public static BigDecimal refundValue(Reservation reservation) {
+        long hours = ChronoUnit.HOURS.between(LocalDateTime.now(), reservation.getSchedule().getStartDateTime());
+
+        if (hours >= FULL_REFUND_HOURS_IN_ADVANCE) {
+            return reservation.getValue();
+        }
+
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Names the refund for metrics, from the refund and the reservation left after it.
+     */
+    public static String tier(BigDecimal refundValue, Reservation reservation) {
+        if (refundValue.signum() == 0) {
+            return "none";
+        }
+        return refundValue.compareTo(reservation.getValue().add(refundValue)) == 0 ? "full" : "partial";
+    }
+}
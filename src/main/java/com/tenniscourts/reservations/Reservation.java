@@ -11,15 +11,24 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
-import javax.persistence.OneToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_reservation_schedule_status", columnList = "schedule_id, reservationStatus"))
+@NamedEntityGraph(name = Reservation.WITH_GUEST_AND_SCHEDULE, attributeNodes = {
+        @NamedAttributeNode("guest"),
+        @NamedAttributeNode(value = "schedule", subgraph = "schedule")},
+        subgraphs = @NamedSubgraph(name = "schedule", attributeNodes = @NamedAttributeNode("tennisCourt")))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -28,10 +37,12 @@ import java.math.BigDecimal;
 @Builder
 public class Reservation extends BaseEntity<Long> {
 
-    @OneToOne
+    public static final String WITH_GUEST_AND_SCHEDULE = "Reservation.guestAndSchedule";
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Guest guest;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull
     private Schedule schedule;
 
@@ -42,4 +53,6 @@ public class Reservation extends BaseEntity<Long> {
     private ReservationStatus reservationStatus = ReservationStatus.READY_TO_PLAY;
 
     private BigDecimal refundValue;
+
+    private LocalDateTime checkInDateTime;
 }
@@ -1,27 +1,113 @@
 package com.tenniscourts.reservations;
 
 import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.config.async.ControllerExecutor;
+import com.tenniscourts.config.idempotency.IdempotencyStore;
+import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
 
+import javax.validation.Valid;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static com.tenniscourts.config.idempotency.IdempotencyStore.IDEMPOTENCY_KEY_HEADER;
+
+@RestController
+@RequestMapping("/reservations")
 @AllArgsConstructor
 public class ReservationController extends BaseRestController {
 
     private final ReservationService reservationService;
 
-    public ResponseEntity<Void> bookReservation(CreateReservationRequestDTO createReservationRequestDTO) {
-        return ResponseEntity.created(locationByEntity(reservationService.bookReservation(createReservationRequestDTO).getId())).build();
+    private final ControllerExecutor controllerExecutor;
+
+    private final IdempotencyStore idempotencyStore;
+
+    @ApiOperation("Books a schedule slot for a guest")
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Void>> bookReservation(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                                   @Valid @RequestBody CreateReservationRequestDTO createReservationRequestDTO) {
+        Function<Long, URI> location = locationByEntity();
+        return idempotencyStore.execute("bookReservation", idempotencyKey, createReservationRequestDTO, () -> controllerExecutor.submit(
+                () -> ResponseEntity.created(location.apply(reservationService.bookReservation(createReservationRequestDTO).getId())).build()));
+    }
+
+    @ApiOperation("Books several schedule slots for a guest, all or none")
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<ReservationDTO>>> bookReservations(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                                                    @Valid @RequestBody CreateBatchReservationRequestDTO createBatchReservationRequestDTO) {
+        return idempotencyStore.execute("bookReservations", idempotencyKey, createBatchReservationRequestDTO, () -> controllerExecutor.submit(
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(reservationService.bookReservations(createBatchReservationRequestDTO))));
+    }
+
+    @ApiOperation("Finds a reservation by id")
+    @GetMapping("/{reservationId}")
+    public CompletableFuture<ResponseEntity<ReservationDTO>> findReservation(@PathVariable Long reservationId) {
+        return controllerExecutor.submit(() -> ResponseEntity.ok(reservationService.findReservation(reservationId)));
+    }
+
+    @ApiOperation("Lists past reservations, newest first, one keyset page at a time")
+    @GetMapping("/history")
+    public CompletableFuture<ResponseEntity<ReservationHistoryPageDTO>> findReservationHistory(
+            @RequestParam(required = false) Long tennisCourtId,
+            @RequestParam(required = false) Long guestId,
+            @RequestParam(required = false) ReservationStatus reservationStatus,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeStartDateTime,
+            @RequestParam(required = false) Long beforeReservationId,
+            @RequestParam(defaultValue = "50") int size) {
+        ReservationHistoryFilter filter = ReservationHistoryFilter.builder()
+                .tennisCourtId(tennisCourtId)
+                .guestId(guestId)
+                .reservationStatus(reservationStatus)
+                .beforeStartDateTime(beforeStartDateTime != null ? beforeStartDateTime : LocalDateTime.now())
+                .beforeReservationId(beforeReservationId != null ? beforeReservationId : Long.MAX_VALUE)
+                .build();
+        return controllerExecutor.submit(() -> ResponseEntity.ok(reservationService.findReservationHistory(filter, size)));
+    }
+
+    @ApiOperation("Cancels a reservation")
+    @PutMapping("/{reservationId}/cancel")
+    public CompletableFuture<ResponseEntity<ReservationDTO>> cancelReservation(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                                               @PathVariable Long reservationId) {
+        return idempotencyStore.execute("cancelReservation", idempotencyKey, reservationId, () -> controllerExecutor.submit(
+                () -> ResponseEntity.ok(reservationService.cancelReservation(reservationId))));
     }
 
-    public ResponseEntity<ReservationDTO> findReservation(Long reservationId) {
-        return ResponseEntity.ok(reservationService.findReservation(reservationId));
+    @ApiOperation("Checks the guest in so the deposit is refunded after the match")
+    @PutMapping("/{reservationId}/check-in")
+    public CompletableFuture<ResponseEntity<ReservationDTO>> checkInReservation(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                                                @PathVariable Long reservationId) {
+        return idempotencyStore.execute("checkInReservation", idempotencyKey, reservationId, () -> controllerExecutor.submit(
+                () -> ResponseEntity.ok(reservationService.checkInReservation(reservationId))));
     }
 
-    public ResponseEntity<ReservationDTO> cancelReservation(Long reservationId) {
-        return ResponseEntity.ok(reservationService.cancelReservation(reservationId));
+    @ApiOperation("Moves a reservation to another schedule slot")
+    @PutMapping("/{reservationId}/reschedule/{scheduleId}")
+    public CompletableFuture<ResponseEntity<ReservationDTO>> rescheduleReservation(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                                                   @PathVariable Long reservationId, @PathVariable Long scheduleId) {
+        return idempotencyStore.execute("rescheduleReservation", idempotencyKey, Arrays.asList(reservationId, scheduleId), () -> controllerExecutor.submit(
+                () -> ResponseEntity.ok(reservationService.rescheduleReservation(reservationId, scheduleId))));
     }
 
-    public ResponseEntity<ReservationDTO> rescheduleReservation(Long reservationId, Long scheduleId) {
-        return ResponseEntity.ok(reservationService.rescheduleReservation(reservationId, scheduleId));
+    @ApiOperation("Reports how often bookings contended for the same schedule")
+    @GetMapping("/booking-stats")
+    public CompletableFuture<ResponseEntity<BookingStatsDTO>> findBookingStats() {
+        return controllerExecutor.submit(() -> ResponseEntity.ok(reservationService.getBookingStats()));
     }
 }
@@ -1,5 +1,6 @@
 package com.tenniscourts.reservations;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.tenniscourts.schedules.ScheduleDTO;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -10,6 +11,7 @@ import lombok.Setter;
 
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -31,6 +33,9 @@ public class ReservationDTO {
 
     private BigDecimal value;
 
+    @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime checkInDateTime;
+
     @NotNull
     private Long scheduledId;
 
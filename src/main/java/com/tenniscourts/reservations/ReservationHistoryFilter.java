@@ -0,0 +1,28 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters and keyset cursor of a reservation history page. Pages are ordered by schedule start and
+ * reservation id, both descending, and start right after {@code (beforeStartDateTime, beforeReservationId)}.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class ReservationHistoryFilter {
+
+    private final Long tennisCourtId;
+
+    private final Long guestId;
+
+    private final ReservationStatus reservationStatus;
+
+    private final LocalDateTime beforeStartDateTime;
+
+    private final Long beforeReservationId;
+
+}
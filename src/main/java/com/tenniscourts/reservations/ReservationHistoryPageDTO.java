@@ -0,0 +1,27 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationHistoryPageDTO {
+
+    private List<ReservationDTO> reservations;
+
+    private boolean hasMore;
+
+    private LocalDateTime nextBeforeStartDateTime;
+
+    private Long nextBeforeReservationId;
+
+}
@@ -0,0 +1,13 @@
+package com.tenniscourts.reservations;
+
+import java.util.stream.Stream;
+
+public interface ReservationHistoryRepository {
+
+    /**
+     * Streams at most {@code limit} reservations matching the filter, from the live and the archive tables,
+     * as projections of the reservation, its schedule and court, newest schedule first. Must be consumed
+     * and closed inside a transaction.
+     */
+    Stream<ReservationView> streamHistory(ReservationHistoryFilter filter, int limit);
+}
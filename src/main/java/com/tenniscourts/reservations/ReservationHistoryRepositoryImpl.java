@@ -0,0 +1,140 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams the history page from the live tables and from the archive with the same keyset condition,
+ * merging both streams row by row as they are read. Each side reads at most {@code limit} rows with a
+ * JDBC fetch size, so a page never costs more than twice its size whatever share of it has been archived,
+ * and only one row per side is held ahead of the caller.
+ */
+@AllArgsConstructor
+public class ReservationHistoryRepositoryImpl implements ReservationHistoryRepository {
+
+    private static final int FETCH_SIZE = 100;
+
+    private static final String SELECT_VIEW = "select new com.tenniscourts.reservations.ReservationView("
+            + "r.id, r.reservationStatus, r.value, r.refundValue, r.checkInDateTime, %s,"
+            + " s.id, s.startDateTime, s.endDateTime, t.id, t.name)";
+
+    private static final Comparator<ReservationView> NEWEST_FIRST = Comparator
+            .comparing(ReservationView::getStartDateTime)
+            .thenComparing(ReservationView::getId)
+            .reversed();
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Stream<ReservationView> streamHistory(ReservationHistoryFilter filter, int limit) {
+        Stream<ReservationView> live = this.query(String.format(SELECT_VIEW, "r.guest.id")
+                        + " from Reservation r join r.schedule s join s.tennisCourt t where 1 = 1",
+                "s.tennisCourt.id", "r.guest.id", filter, limit);
+        Stream<ReservationView> archived;
+        try {
+            archived = this.query(String.format(SELECT_VIEW, "r.guestId")
+                            + " from ReservationArchive r, ScheduleArchive s, TennisCourt t"
+                            + " where s.id = r.scheduleId and t.id = s.tennisCourtId",
+                    "s.tennisCourtId", "r.guestId", filter, limit);
+        } catch (RuntimeException ex) {
+            live.close();
+            throw ex;
+        }
+
+        Iterator<ReservationView> history = new NewestFirstIterator(live.iterator(), archived.iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(history, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .limit(limit)
+                .onClose(() -> {
+                    try {
+                        live.close();
+                    } finally {
+                        archived.close();
+                    }
+                });
+    }
+
+    private Stream<ReservationView> query(String from, String tennisCourtIdPath, String guestIdPath,
+                                        ReservationHistoryFilter filter, int limit) {
+        StringBuilder jpql = new StringBuilder(from)
+                .append(" and (s.startDateTime < :beforeStartDateTime")
+                .append(" or (s.startDateTime = :beforeStartDateTime and r.id < :beforeReservationId))");
+        if (filter.getTennisCourtId() != null) {
+            jpql.append(" and ").append(tennisCourtIdPath).append(" = :tennisCourtId");
+        }
+        if (filter.getGuestId() != null) {
+            jpql.append(" and ").append(guestIdPath).append(" = :guestId");
+        }
+        if (filter.getReservationStatus() != null) {
+            jpql.append(" and r.reservationStatus = :reservationStatus");
+        }
+        jpql.append(" order by s.startDateTime desc, r.id desc");
+
+        TypedQuery<ReservationView> query = entityManager.createQuery(jpql.toString(), ReservationView.class)
+                .setParameter("beforeStartDateTime", filter.getBeforeStartDateTime())
+                .setParameter("beforeReservationId", filter.getBeforeReservationId())
+                .setMaxResults(limit)
+                .setHint(QueryHints.FETCH_SIZE, FETCH_SIZE);
+        if (filter.getTennisCourtId() != null) {
+            query.setParameter("tennisCourtId", filter.getTennisCourtId());
+        }
+        if (filter.getGuestId() != null) {
+            query.setParameter("guestId", filter.getGuestId());
+        }
+        if (filter.getReservationStatus() != null) {
+            query.setParameter("reservationStatus", filter.getReservationStatus());
+        }
+        return query.getResultStream();
+    }
+
+    /**
+     * Merges two iterators that are both ordered newest first.
+     */
+    private static final class NewestFirstIterator implements Iterator<ReservationView> {
+
+        private final Iterator<ReservationView> live;
+
+        private final Iterator<ReservationView> archived;
+
+        private ReservationView nextLive;
+
+        private ReservationView nextArchived;
+
+        NewestFirstIterator(Iterator<ReservationView> live, Iterator<ReservationView> archived) {
+            this.live = live;
+            this.archived = archived;
+            this.nextLive = live.hasNext() ? live.next() : null;
+            this.nextArchived = archived.hasNext() ? archived.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLive != null || nextArchived != null;
+        }
+
+        @Override
+        public ReservationView next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ReservationView next;
+            if (nextArchived == null || (nextLive != null && NEWEST_FIRST.compare(nextLive, nextArchived) <= 0)) {
+                next = nextLive;
+                nextLive = live.hasNext() ? live.next() : null;
+            } else {
+                next = nextArchived;
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            }
+            return next;
+        }
+    }
+}
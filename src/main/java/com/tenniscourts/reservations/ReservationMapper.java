@@ -4,14 +4,30 @@ import org.mapstruct.InheritInverseConfiguration;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface ReservationMapper {
 
     Reservation map(ReservationDTO source);
 
     @InheritInverseConfiguration
+    @Mapping(target = "guestId", source = "guest.id")
+    @Mapping(target = "scheduledId", source = "schedule.id")
+    @Mapping(target = "schedule.tennisCourtId", source = "schedule.tennisCourt.id")
     ReservationDTO map(Reservation source);
 
+    List<ReservationDTO> map(List<Reservation> source);
+
+    @Mapping(target = "scheduledId", source = "scheduleId")
+    @Mapping(target = "schedule.id", source = "scheduleId")
+    @Mapping(target = "schedule.tennisCourtId", source = "tennisCourtId")
+    @Mapping(target = "schedule.tennisCourt.id", source = "tennisCourtId")
+    @Mapping(target = "schedule.tennisCourt.name", source = "tennisCourtName")
+    @Mapping(target = "schedule.startDateTime", source = "startDateTime")
+    @Mapping(target = "schedule.endDateTime", source = "endDateTime")
+    ReservationDTO mapView(ReservationView source);
+
     @Mapping(target = "guest.id", source = "guestId")
     @Mapping(target = "schedule.id", source = "scheduleId")
     Reservation map(CreateReservationRequestDTO source);
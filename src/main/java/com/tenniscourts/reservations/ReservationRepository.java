@@ -1,14 +1,29 @@
 package com.tenniscourts.reservations;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
-public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+public interface ReservationRepository extends JpaRepository<Reservation, Long>, ReservationHistoryRepository {
 
     List<Reservation> findBySchedule_Id(Long scheduleId);
 
+    @EntityGraph(Reservation.WITH_GUEST_AND_SCHEDULE)
+    Optional<Reservation> findWithGuestAndScheduleById(Long id);
+
+    @Query("select r.schedule.id from Reservation r where r.id = :id")
+    Optional<Long> findScheduleIdById(@Param("id") Long id);
+
+    @Query("select r.schedule.id from Reservation r where r.schedule.id in :scheduleIds and r.reservationStatus = :status")
+    Set<Long> findScheduleIdsByReservationStatus(@Param("scheduleIds") Collection<Long> scheduleIds, @Param("status") ReservationStatus status);
+
     List<Reservation> findByReservationStatusAndSchedule_StartDateTimeGreaterThanEqualAndSchedule_EndDateTimeLessThanEqual(ReservationStatus reservationStatus, LocalDateTime startDateTime, LocalDateTime endDateTime);
 
 //    List<Reservation> findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqualAndTennisCourt(LocalDateTime startDateTime, LocalDateTime endDateTime, TennisCourt tennisCourt);
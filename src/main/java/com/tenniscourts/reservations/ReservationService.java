@@ -1,42 +1,225 @@
 package com.tenniscourts.reservations;
 
+import com.tenniscourts.archive.ReservationArchiveRepository;
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
 import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.outbox.ReservationEventPublisher;
+import com.tenniscourts.outbox.ReservationEventType;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.schedules.SlotAvailabilityIndex;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Books, cancels, reschedules and checks in reservations, which are stored through JPA. With
+ * {@code tenniscourts.reservations.store=journal} the journal-backed subclass takes over instead.
+ */
 @Service
+@ConditionalOnProperty(name = "tenniscourts.reservations.store", havingValue = "jpa", matchIfMissing = true)
 @AllArgsConstructor
 public class ReservationService {
 
+    public static final BigDecimal RESERVATION_DEPOSIT = new BigDecimal(10);
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+
+    private static final long CHECK_IN_OPENS_HOURS_BEFORE_START = 1;
+
     private final ReservationRepository reservationRepository;
 
+    private final ScheduleRepository scheduleRepository;
+
+    private final GuestRepository guestRepository;
+
+    private final BookingEngine bookingEngine;
+
     private final ReservationMapper reservationMapper;
 
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ReservationEventPublisher reservationEventPublisher;
+
+    private final ReservationArchiveRepository reservationArchiveRepository;
+
     public ReservationDTO bookReservation(CreateReservationRequestDTO createReservationRequestDTO) {
-        throw new UnsupportedOperationException();
+        Long scheduleId = createReservationRequestDTO.getScheduleId();
+        return bookingEngine.execute(scheduleId, () -> reservationMapper.map(
+                this.book(createReservationRequestDTO.getGuestId(), Collections.singletonList(scheduleId)).get(0)));
     }
 
-    public ReservationDTO findReservation(Long reservationId) {
-        return reservationRepository.findById(reservationId).map(reservationMapper::map).orElseThrow(() -> {
-            throw new EntityNotFoundException("Reservation not found.");
+    public List<ReservationDTO> bookReservations(CreateBatchReservationRequestDTO createBatchReservationRequestDTO) {
+        List<Long> scheduleIds = createBatchReservationRequestDTO.getScheduleIds();
+        validateDistinct(scheduleIds);
+
+        return bookingEngine.execute(scheduleIds, () -> reservationMapper.map(
+                this.book(createBatchReservationRequestDTO.getGuestId(), scheduleIds)));
+    }
+
+    public BookingStatsDTO getBookingStats() {
+        return bookingEngine.getStats();
+    }
+
+    public boolean hasReservations(Long guestId) {
+        return guestRepository.hasReservations(guestId);
+    }
+
+    /**
+     * The given schedules that have a reservation ready to play.
+     */
+    public Set<Long> findBookedScheduleIds(Collection<Long> scheduleIds) {
+        return reservationRepository.findScheduleIdsByReservationStatus(scheduleIds, ReservationStatus.READY_TO_PLAY);
+    }
+
+    /**
+     * Keeps reservations from being made or changed until the current transaction completes, so guests
+     * and schedules found without reservations in it can be deleted. Reservations stored through JPA
+     * refer to them by foreign keys, which already keep a deletion and a booking apart.
+     */
+    public void holdReservationChanges() {
+    }
+
+    /**
+     * Waits until the database has every reservation change made so far, for settlement, which works
+     * on the database. Reservations stored through JPA are changed there directly.
+     */
+    public void awaitChangesInDatabase() {
+    }
+
+    /**
+     * Whether the database misses a change of the reservation, which settlement must then leave alone.
+     */
+    public boolean isChangePending(Long reservationId) {
+        return false;
+    }
+
+    protected static void validateDistinct(List<Long> scheduleIds) {
+        if (new HashSet<>(scheduleIds).size() != scheduleIds.size()) {
+            throw new IllegalArgumentException("Cannot book the same schedule twice.");
+        }
+    }
+
+    private List<Reservation> book(Long guestId, List<Long> scheduleIds) {
+        Guest guest = guestRepository.findById(guestId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Guest not found.");
         });
+
+        Map<Long, Schedule> schedules = scheduleRepository.findForBookingByIdIn(scheduleIds).stream()
+                .collect(Collectors.toMap(Schedule::getId, Function.identity()));
+        this.validateBooking(scheduleIds, schedules);
+
+        List<Reservation> reservations = reservationRepository.saveAll(scheduleIds.stream()
+                .map(scheduleId -> Reservation.builder()
+                        .guest(guest)
+                        .schedule(schedules.get(scheduleId))
+                        .value(RESERVATION_DEPOSIT)
+                        .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                        .build())
+                .collect(Collectors.toList()));
+        scheduleIds.forEach(slotAvailabilityIndex::markBooked);
+        reservations.forEach(reservation -> reservationEventPublisher.publish(ReservationEventType.BOOKED, reservation));
+        return reservations;
+    }
+
+    private void validateBooking(List<Long> scheduleIds, Map<Long, Schedule> schedules) {
+        if (schedules.size() != scheduleIds.size()) {
+            throw new EntityNotFoundException(scheduleIds.size() == 1 ? "Schedule not found."
+                    : "Schedules not found: " + scheduleIds.stream().filter(id -> !schedules.containsKey(id)).collect(Collectors.toList()));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (schedules.values().stream().anyMatch(schedule -> schedule.getStartDateTime().isBefore(now))) {
+            throw new IllegalArgumentException("Can book only future dates.");
+        }
+
+        Set<Long> bookedScheduleIds = reservationRepository.findScheduleIdsByReservationStatus(scheduleIds, ReservationStatus.READY_TO_PLAY);
+        if (!bookedScheduleIds.isEmpty()) {
+            meterRegistry.counter("tenniscourts.booking.conflicts", "reason", "already_booked").increment();
+            throw new AlreadyExistsEntityException(scheduleIds.size() == 1 ? "Schedule already booked."
+                    : "Schedules already booked: " + bookedScheduleIds);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ReservationDTO findReservation(Long reservationId) {
+        return reservationRepository.findWithGuestAndScheduleById(reservationId).map(reservationMapper::map)
+                .orElseGet(() -> reservationArchiveRepository.findViewById(reservationId).map(reservationMapper::mapView)
+                        .orElseThrow(() -> {
+                            throw new EntityNotFoundException("Reservation not found.");
+                        }));
+    }
+
+    /**
+     * Reads one keyset page of the reservation history, newest schedule first, including archived
+     * reservations. Only {@code size + 1} rows are read per table, whatever the cursor position, and
+     * only as projections.
+     */
+    @Transactional(readOnly = true)
+    public ReservationHistoryPageDTO findReservationHistory(ReservationHistoryFilter filter, int size) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE + ".");
+        }
+
+        List<ReservationDTO> reservations;
+        try (Stream<ReservationView> history = reservationRepository.streamHistory(filter, size + 1)) {
+            reservations = history.map(reservationMapper::mapView).collect(Collectors.toList());
+        }
+
+        boolean hasMore = reservations.size() > size;
+        if (hasMore) {
+            reservations.remove(size);
+        }
+        ReservationDTO last = reservations.isEmpty() ? null : reservations.get(reservations.size() - 1);
+        return ReservationHistoryPageDTO.builder()
+                .reservations(reservations)
+                .hasMore(hasMore)
+                .nextBeforeStartDateTime(hasMore ? last.getSchedule().getStartDateTime() : null)
+                .nextBeforeReservationId(hasMore ? last.getId() : null)
+                .build();
     }
 
     public ReservationDTO cancelReservation(Long reservationId) {
-        return reservationMapper.map(this.cancel(reservationId));
+        return reservationMapper.map(this.lockedCancel(reservationId));
+    }
+
+    private Reservation lockedCancel(Long reservationId) {
+        Long scheduleId = reservationRepository.findScheduleIdById(reservationId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Reservation not found.");
+        });
+        return bookingEngine.execute(scheduleId, () -> this.cancel(reservationId));
     }
 
     private Reservation cancel(Long reservationId) {
-        return reservationRepository.findById(reservationId).map(reservation -> {
+        return reservationRepository.findWithGuestAndScheduleById(reservationId).map(reservation -> {
 
             this.validateCancellation(reservation);
 
             BigDecimal refundValue = getRefundValue(reservation);
-            return this.updateReservation(reservation, refundValue, ReservationStatus.CANCELLED);
+            Reservation cancelled = this.updateReservation(reservation, refundValue, ReservationStatus.CANCELLED);
+            meterRegistry.counter("tenniscourts.reservations.cancellations", "refundTier", refundTier(refundValue, reservation)).increment();
+            slotAvailabilityIndex.markFree(cancelled.getSchedule().getId());
+            reservationEventPublisher.publish(ReservationEventType.CANCELLED, cancelled);
+            return cancelled;
 
         }).orElseThrow(() -> {
             throw new EntityNotFoundException("Reservation not found.");
@@ -51,7 +234,7 @@ public class ReservationService {
         return reservationRepository.save(reservation);
     }
 
-    private void validateCancellation(Reservation reservation) {
+    protected void validateCancellation(Reservation reservation) {
         if (!ReservationStatus.READY_TO_PLAY.equals(reservation.getReservationStatus())) {
             throw new IllegalArgumentException("Cannot cancel/reschedule because it's not in ready to play status.");
         }
@@ -61,33 +244,83 @@ public class ReservationService {
         }
     }
 
-    public BigDecimal getRefundValue(Reservation reservation) {
-        long hours = ChronoUnit.HOURS.between(LocalDateTime.now(), reservation.getSchedule().getStartDateTime());
+    /**
+     * Records that the guest showed up, which lets the settlement job refund the deposit once the
+     * match is over. Check-in opens an hour before the start and closes when the schedule ends.
+     */
+    public ReservationDTO checkInReservation(Long reservationId) {
+        Long scheduleId = reservationRepository.findScheduleIdById(reservationId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Reservation not found.");
+        });
+        return bookingEngine.execute(scheduleId, () -> reservationRepository.findWithGuestAndScheduleById(reservationId)
+                .map(reservation -> {
+                    this.validateCheckIn(reservation);
+                    reservation.setCheckInDateTime(LocalDateTime.now());
+                    Reservation checkedIn = reservationRepository.save(reservation);
+                    reservationEventPublisher.publish(ReservationEventType.CHECKED_IN, checkedIn);
+                    return reservationMapper.map(checkedIn);
+                }).orElseThrow(() -> {
+                    throw new EntityNotFoundException("Reservation not found.");
+                }));
+    }
 
-        if (hours >= 24) {
-            return reservation.getValue();
+    protected void validateCheckIn(Reservation reservation) {
+        if (!ReservationStatus.READY_TO_PLAY.equals(reservation.getReservationStatus())) {
+            throw new IllegalArgumentException("Cannot check in because it's not in ready to play status.");
         }
 
-        return BigDecimal.ZERO;
+        if (reservation.getCheckInDateTime() != null) {
+            throw new AlreadyExistsEntityException("Reservation already checked in.");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Schedule schedule = reservation.getSchedule();
+        if (now.isBefore(schedule.getStartDateTime().minusHours(CHECK_IN_OPENS_HOURS_BEFORE_START))
+                || !now.isBefore(schedule.getEndDateTime())) {
+            throw new IllegalArgumentException("Can check in only from one hour before the start until the end of the schedule.");
+        }
     }
 
-    /*TODO: This method actually not fully working, find a way to fix the issue when it's throwing the error:
-            "Cannot reschedule to the same slot.*/
-    public ReservationDTO rescheduleReservation(Long previousReservationId, Long scheduleId) {
-        Reservation previousReservation = cancel(previousReservationId);
+    protected static String refundTier(BigDecimal refundValue, Reservation reservation) {
+        return RefundPolicy.tier(refundValue, reservation);
+    }
+
+    public BigDecimal getRefundValue(Reservation reservation) {
+        return RefundPolicy.refundValue(reservation);
+    }
 
-        if (scheduleId.equals(previousReservation.getSchedule().getId())) {
+    /**
+     * Moves a reservation to another slot as one change: both slots are locked together, in the engine's
+     * deterministic order, and the new reservation is validated and written in the same transaction that
+     * marks the old one {@code RESCHEDULED}, so a failure leaves both untouched.
+     */
+    public ReservationDTO rescheduleReservation(Long previousReservationId, Long scheduleId) {
+        Long previousScheduleId = reservationRepository.findScheduleIdById(previousReservationId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Reservation not found.");
+        });
+        if (scheduleId.equals(previousScheduleId)) {
             throw new IllegalArgumentException("Cannot reschedule to the same slot.");
         }
 
-        previousReservation.setReservationStatus(ReservationStatus.RESCHEDULED);
-        reservationRepository.save(previousReservation);
+        return bookingEngine.execute(Arrays.asList(previousScheduleId, scheduleId),
+                () -> this.reschedule(previousReservationId, scheduleId));
+    }
+
+    private ReservationDTO reschedule(Long previousReservationId, Long scheduleId) {
+        Reservation previousReservation = reservationRepository.findWithGuestAndScheduleById(previousReservationId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Reservation not found.");
+        });
+        this.validateCancellation(previousReservation);
+        Reservation newReservation = this.book(previousReservation.getGuest().getId(), Collections.singletonList(scheduleId)).get(0);
+
+        BigDecimal refundValue = getRefundValue(previousReservation);
+        this.updateReservation(previousReservation, refundValue, ReservationStatus.RESCHEDULED);
+        meterRegistry.counter("tenniscourts.reservations.reschedules", "refundTier", refundTier(refundValue, previousReservation)).increment();
+        slotAvailabilityIndex.markFree(previousReservation.getSchedule().getId());
+        reservationEventPublisher.publish(ReservationEventType.RESCHEDULED, previousReservation, newReservation);
 
-        ReservationDTO newReservation = bookReservation(CreateReservationRequestDTO.builder()
-                .guestId(previousReservation.getGuest().getId())
-                .scheduleId(scheduleId)
-                .build());
-        newReservation.setPreviousReservation(reservationMapper.map(previousReservation));
-        return newReservation;
+        ReservationDTO rescheduled = reservationMapper.map(newReservation);
+        rescheduled.setPreviousReservation(reservationMapper.map(previousReservation));
+        return rescheduled;
     }
 }
@@ -3,5 +3,7 @@ package com.tenniscourts.reservations;
 public enum ReservationStatus {
   READY_TO_PLAY,
   CANCELLED,
-  RESCHEDULED
+  RESCHEDULED,
+  PLAYED,
+  NO_SHOW
 }
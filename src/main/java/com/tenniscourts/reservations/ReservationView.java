@@ -0,0 +1,38 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The columns a {@link ReservationDTO} is built from, selected with a constructor expression so list
+ * queries never load {@link Reservation} entities or their associations.
+ */
+@Getter
+@AllArgsConstructor
+public class ReservationView {
+
+    private final Long id;
+
+    private final ReservationStatus reservationStatus;
+
+    private final BigDecimal value;
+
+    private final BigDecimal refundValue;
+
+    private final LocalDateTime checkInDateTime;
+
+    private final Long guestId;
+
+    private final Long scheduleId;
+
+    private final LocalDateTime startDateTime;
+
+    private final LocalDateTime endDateTime;
+
+    private final Long tennisCourtId;
+
+    private final String tennisCourtName;
+}
@@ -0,0 +1,47 @@
+package com.tenniscourts.schedules;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateRecurringScheduleRequestDTO {
+
+    @NotEmpty
+    private List<@NotNull Long> tennisCourtIds;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @NotNull
+    private LocalDate startDate;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @NotNull
+    private LocalDate endDate;
+
+    @NotEmpty
+    private Set<@NotNull DayOfWeek> daysOfWeek;
+
+    @JsonFormat(pattern = "HH:mm")
+    @NotNull
+    private LocalTime openingTime;
+
+    @JsonFormat(pattern = "HH:mm")
+    @NotNull
+    private LocalTime closingTime;
+
+}
@@ -0,0 +1,22 @@
+package com.tenniscourts.schedules;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringScheduleResultDTO {
+
+    private int created;
+
+    private int skipped;
+
+    private long elapsedMillis;
+
+}
@@ -12,16 +12,24 @@ import lombok.Setter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_schedule_start_date_time", columnList = "startDateTime"),
+        @Index(name = "idx_schedule_tennis_court_start", columnList = "tennis_court_id, startDateTime", unique = true)})
+@NamedEntityGraph(name = Schedule.WITH_TENNIS_COURT, attributeNodes = @NamedAttributeNode("tennisCourt"))
 @Getter
 @Setter
 @Builder
@@ -30,7 +38,9 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = true, exclude = "reservations")
 public class Schedule extends BaseEntity<Long> {
 
-    @ManyToOne
+    public static final String WITH_TENNIS_COURT = "Schedule.tennisCourt";
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull
     private TennisCourt tennisCourt;
 
@@ -42,9 +52,12 @@ public class Schedule extends BaseEntity<Long> {
     @NotNull
     private LocalDateTime endDateTime;
 
-    @OneToMany
+    @OneToMany(mappedBy = "schedule")
     private List<Reservation> reservations;
 
+    @Version
+    private Long version;
+
     public void addReservation(Reservation reservation) {
         if (this.reservations == null) {
             this.reservations = new ArrayList<>();
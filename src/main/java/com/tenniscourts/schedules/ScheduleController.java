@@ -1,32 +1,93 @@
 package com.tenniscourts.schedules;
 
 import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.config.async.ControllerExecutor;
+import com.tenniscourts.config.cache.ResourceVersions;
+import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.validation.Valid;
+import java.net.URI;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
+@RestController
+@RequestMapping("/schedules")
 @AllArgsConstructor
 public class ScheduleController extends BaseRestController {
 
     private final ScheduleService scheduleService;
 
-    //TODO: implement rest and swagger
-    public ResponseEntity<Void> addScheduleTennisCourt(CreateScheduleRequestDTO createScheduleRequestDTO) {
-        return ResponseEntity.created(locationByEntity(scheduleService.addSchedule(createScheduleRequestDTO.getTennisCourtId(), createScheduleRequestDTO).getId())).build();
+    private final ControllerExecutor controllerExecutor;
+
+    private final SlotAvailabilityStream slotAvailabilityStream;
+
+    private final ResourceVersions resourceVersions;
+
+    @ApiOperation("Creates a one hour schedule slot for a tennis court")
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Void>> addScheduleTennisCourt(@Valid @RequestBody CreateScheduleRequestDTO createScheduleRequestDTO) {
+        Function<Long, URI> location = locationByEntity();
+        return controllerExecutor.submit(() -> ResponseEntity.created(location.apply(scheduleService.addSchedule(createScheduleRequestDTO.getTennisCourtId(), createScheduleRequestDTO).getId())).build());
+    }
+
+    @ApiOperation("Creates hourly schedule slots for several tennis courts over a date range")
+    @PostMapping("/recurring")
+    public CompletableFuture<ResponseEntity<RecurringScheduleResultDTO>> addRecurringSchedules(@Valid @RequestBody CreateRecurringScheduleRequestDTO createRecurringScheduleRequestDTO) {
+        return controllerExecutor.submit(() -> ResponseEntity.status(HttpStatus.CREATED).body(scheduleService.addRecurringSchedules(createRecurringScheduleRequestDTO)));
+    }
+
+    @ApiOperation("Lists the schedule slots of all tennis courts between two dates, both included")
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<ScheduleDTO>>> findSchedulesByDates(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                                                                     WebRequest request) {
+        return conditional(request, resourceVersions.ofSchedules(),
+                () -> controllerExecutor.submit(() -> ResponseEntity.ok(scheduleService.findSchedulesByDates(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay()))));
+    }
+
+    @ApiOperation("Lists the schedule slots of all tennis courts between two dates, both included, naming each court once")
+    @GetMapping("/grid")
+    public CompletableFuture<ResponseEntity<ScheduleGridDTO>> findScheduleGrid(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                                                              WebRequest request) {
+        return conditional(request, resourceVersions.ofSchedules(),
+                () -> controllerExecutor.submit(() -> ResponseEntity.ok(scheduleService.findScheduleGrid(startDate, endDate))));
+    }
+
+    @ApiOperation("Finds a schedule slot by id")
+    @GetMapping("/{scheduleId}")
+    public CompletableFuture<ResponseEntity<ScheduleDTO>> findByScheduleId(@PathVariable Long scheduleId, WebRequest request) {
+        return conditional(request, resourceVersions.ofSchedules(),
+                () -> controllerExecutor.submit(() -> ResponseEntity.ok(scheduleService.findSchedule(scheduleId))));
     }
 
-    //TODO: implement rest and swagger
-    public ResponseEntity<List<ScheduleDTO>> findSchedulesByDates(LocalDate startDate,
-                                                                  LocalDate endDate) {
-        return ResponseEntity.ok(scheduleService.findSchedulesByDates(LocalDateTime.of(startDate, LocalTime.of(0, 0)), LocalDateTime.of(endDate, LocalTime.of(23, 59))));
+    @ApiOperation("Lists the free hourly slots of a day, optionally restricted to one tennis court")
+    @GetMapping("/free-slots")
+    public CompletableFuture<ResponseEntity<List<FreeSlotDTO>>> findFreeSlots(@RequestParam(required = false) Long tennisCourtId,
+                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return controllerExecutor.submit(() -> ResponseEntity.ok(scheduleService.findFreeSlots(tennisCourtId, date)));
     }
 
-    //TODO: implement rest and swagger
-    public ResponseEntity<ScheduleDTO> findByScheduleId(Long scheduleId) {
-        return ResponseEntity.ok(scheduleService.findSchedule(scheduleId));
+    @ApiOperation("Streams the free slots between two dates, then every slot that gets booked or freed, as Server-Sent Events")
+    @GetMapping("/free-slots/stream")
+    public SseEmitter streamFreeSlots(@RequestParam(required = false) Long tennisCourtId,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return slotAvailabilityStream.subscribe(tennisCourtId, startDate, endDate);
     }
 }
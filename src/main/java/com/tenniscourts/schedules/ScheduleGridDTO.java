@@ -0,0 +1,29 @@
+package com.tenniscourts.schedules;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The one hour schedule slots of a date range in a compact form: every court is listed once with its
+ * slots as two parallel arrays, the schedule ids and their start as hours since {@code startDate}.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleGridDTO {
+
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+
+    private List<TennisCourtSlotsDTO> tennisCourts;
+
+}
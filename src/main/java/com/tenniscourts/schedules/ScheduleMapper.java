@@ -1,6 +1,7 @@
 package com.tenniscourts.schedules;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
@@ -9,7 +10,14 @@ public interface ScheduleMapper {
 
     Schedule map(ScheduleDTO source);
 
+    @Mapping(target = "tennisCourtId", source = "tennisCourt.id")
     ScheduleDTO map(Schedule source);
 
     List<ScheduleDTO> map(List<Schedule> source);
+
+    @Mapping(target = "tennisCourt.id", source = "tennisCourtId")
+    @Mapping(target = "tennisCourt.name", source = "tennisCourtName")
+    ScheduleDTO mapView(ScheduleView source);
+
+    List<ScheduleDTO> mapViews(List<ScheduleView> source);
 }
@@ -1,10 +1,48 @@
 package com.tenniscourts.schedules;
 
+import com.tenniscourts.reservations.ReservationStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
 
-    List<Schedule> findByTennisCourt_IdOrderByStartDateTime(Long id);
-}
\ No newline at end of file
+    @Query("select s.id as id, t.id as tennisCourtId, t.name as tennisCourtName, s.startDateTime as startDateTime, " +
+            "s.endDateTime as endDateTime from Schedule s join s.tennisCourt t where t.id = :tennisCourtId order by s.startDateTime")
+    List<ScheduleView> findViewsByTennisCourtId(@Param("tennisCourtId") Long tennisCourtId);
+
+    @Query("select s.id as id, t.id as tennisCourtId, t.name as tennisCourtName, s.startDateTime as startDateTime, " +
+            "s.endDateTime as endDateTime from Schedule s join s.tennisCourt t " +
+            "where s.startDateTime >= :startDateTime and s.startDateTime < :endDateTime order by s.startDateTime, t.id")
+    List<ScheduleView> findViewsByStartDateTimeBetween(@Param("startDateTime") LocalDateTime startDateTime,
+                                                      @Param("endDateTime") LocalDateTime endDateTime);
+
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    Optional<Schedule> findWithTennisCourtById(Long id);
+
+    @Query("select s.id as id, s.tennisCourt.id as tennisCourtId, s.startDateTime as startDateTime from Schedule s")
+    List<ScheduleSlotView> findAllSlots();
+
+    boolean existsByTennisCourt_IdAndStartDateTime(Long tennisCourtId, LocalDateTime startDateTime);
+
+    @Query("select s.id as id, s.tennisCourt.id as tennisCourtId, s.startDateTime as startDateTime from Schedule s " +
+            "where s.tennisCourt.id in :tennisCourtIds and s.startDateTime >= :startDateTime and s.startDateTime < :endDateTime")
+    List<ScheduleSlotView> findSlots(@Param("tennisCourtIds") Collection<Long> tennisCourtIds,
+                                     @Param("startDateTime") LocalDateTime startDateTime,
+                                     @Param("endDateTime") LocalDateTime endDateTime);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select s from Schedule s where s.id in :ids")
+    List<Schedule> findForBookingByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select distinct r.schedule.id from Reservation r where r.reservationStatus = :status")
+    List<Long> findIdsWithReservationStatus(@Param("status") ReservationStatus status);
+}
@@ -1,35 +1,241 @@
 package com.tenniscourts.schedules;
 
+import com.tenniscourts.config.cache.CacheConfig;
+import com.tenniscourts.config.cache.TennisCourtCacheEvictor;
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class ScheduleService {
 
+    private static final int MAX_GENERATED_SCHEDULES = 200_000;
+
+    private static final int GENERATION_FLUSH_SIZE = 1_000;
+
+    private static final int MAX_LISTED_DAYS = 92;
+
     private final ScheduleRepository scheduleRepository;
 
+    private final TennisCourtRepository tennisCourtRepository;
+
     private final ScheduleMapper scheduleMapper;
 
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+
+    private final EntityManager entityManager;
+
+    private final TennisCourtCacheEvictor tennisCourtCacheEvictor;
+
+    @Transactional
     public ScheduleDTO addSchedule(Long tennisCourtId, CreateScheduleRequestDTO createScheduleRequestDTO) {
-        //TODO: implement addSchedule
-        return null;
+        TennisCourt tennisCourt = tennisCourtRepository.findById(tennisCourtId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Tennis Court not found.");
+        });
+
+        LocalDateTime startDateTime = createScheduleRequestDTO.getStartDateTime();
+        if (!startDateTime.toLocalTime().equals(startDateTime.toLocalTime().truncatedTo(ChronoUnit.HOURS))) {
+            throw new IllegalArgumentException("Schedules must start on the hour.");
+        }
+        if (scheduleRepository.existsByTennisCourt_IdAndStartDateTime(tennisCourtId, startDateTime)) {
+            throw new AlreadyExistsEntityException("Schedule already exists.");
+        }
+
+        Schedule schedule;
+        try {
+            schedule = scheduleRepository.saveAndFlush(newSchedule(tennisCourt, startDateTime));
+        } catch (DataIntegrityViolationException ex) {
+            throw new AlreadyExistsEntityException("Schedule already exists.");
+        }
+        slotAvailabilityIndex.registerSchedule(schedule.getId(), tennisCourtId, startDateTime);
+        tennisCourtCacheEvictor.evictSchedules(tennisCourtId);
+        return scheduleMapper.map(schedule);
+    }
+
+    /**
+     * Expands the request into one hourly schedule per court, day and opening hour, skipping slots that
+     * already exist. Rows are flushed and detached every {@value #GENERATION_FLUSH_SIZE} schedules so the
+     * persistence context stays small and inserts go out as JDBC batches.
+     */
+    @Transactional
+    public RecurringScheduleResultDTO addRecurringSchedules(CreateRecurringScheduleRequestDTO request) {
+        long start = System.nanoTime();
+        this.validateRecurringSchedule(request);
+
+        Map<Long, TennisCourt> tennisCourts = tennisCourtRepository.findAllById(request.getTennisCourtIds()).stream()
+                .collect(Collectors.toMap(TennisCourt::getId, Function.identity()));
+        if (tennisCourts.size() != new HashSet<>(request.getTennisCourtIds()).size()) {
+            throw new EntityNotFoundException("Tennis Court not found.");
+        }
+
+        LocalDateTime from = request.getStartDate().atStartOfDay();
+        LocalDateTime to = request.getEndDate().plusDays(1).atStartOfDay();
+        Set<String> existingSlots = scheduleRepository.findSlots(tennisCourts.keySet(), from, to).stream()
+                .map(slot -> slotKey(slot.getTennisCourtId(), slot.getStartDateTime()))
+                .collect(Collectors.toSet());
+
+        long slotsPerDay = ChronoUnit.HOURS.between(request.getOpeningTime(), request.getClosingTime());
+        int created = 0;
+        int skipped = 0;
+        List<Schedule> pending = new ArrayList<>(GENERATION_FLUSH_SIZE);
+        for (LocalDate date = request.getStartDate(); !date.isAfter(request.getEndDate()); date = date.plusDays(1)) {
+            if (!request.getDaysOfWeek().contains(date.getDayOfWeek())) {
+                continue;
+            }
+            for (int slot = 0; slot < slotsPerDay; slot++) {
+                LocalDateTime startDateTime = date.atTime(request.getOpeningTime().plusHours(slot));
+                for (TennisCourt tennisCourt : tennisCourts.values()) {
+                    if (existingSlots.contains(slotKey(tennisCourt.getId(), startDateTime))) {
+                        skipped++;
+                        continue;
+                    }
+                    pending.add(newSchedule(tennisCourt, startDateTime));
+                    created++;
+                    if (pending.size() == GENERATION_FLUSH_SIZE) {
+                        this.persist(pending);
+                    }
+                }
+            }
+        }
+        this.persist(pending);
+        if (created > 0) {
+            tennisCourtCacheEvictor.evictSchedules(tennisCourts.keySet());
+        }
+
+        return RecurringScheduleResultDTO.builder()
+                .created(created)
+                .skipped(skipped)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
+    }
+
+    public List<FreeSlotDTO> findFreeSlots(Long tennisCourtId, LocalDate date) {
+        return slotAvailabilityIndex.findFreeSlots(tennisCourtId, date);
     }
 
+    /**
+     * Lists the schedules starting from {@code startDate} up to, but excluding, {@code endDate}, read as
+     * projections so no entity is loaded or dirty-checked however long the range is.
+     */
+    @Transactional(readOnly = true)
     public List<ScheduleDTO> findSchedulesByDates(LocalDateTime startDate, LocalDateTime endDate) {
-        //TODO: implement
-        return null;
+        return scheduleMapper.mapViews(this.findViewsByDates(startDate, endDate));
+    }
+
+    /**
+     * Lists the same schedules as {@link #findSchedulesByDates(LocalDateTime, LocalDateTime)} for whole
+     * days, both included, as a {@link ScheduleGridDTO} naming each court once.
+     */
+    @Transactional(readOnly = true)
+    public ScheduleGridDTO findScheduleGrid(LocalDate startDate, LocalDate endDate) {
+        LocalDateTime gridStart = startDate.atStartOfDay();
+        Map<Long, List<ScheduleView>> schedulesByTennisCourt = this.findViewsByDates(gridStart, endDate.plusDays(1).atStartOfDay())
+                .stream()
+                .collect(Collectors.groupingBy(ScheduleView::getTennisCourtId, TreeMap::new, Collectors.toList()));
+
+        List<TennisCourtSlotsDTO> tennisCourts = new ArrayList<>(schedulesByTennisCourt.size());
+        schedulesByTennisCourt.forEach((tennisCourtId, schedules) -> {
+            long[] scheduleIds = new long[schedules.size()];
+            int[] startHours = new int[schedules.size()];
+            for (int i = 0; i < schedules.size(); i++) {
+                scheduleIds[i] = schedules.get(i).getId();
+                startHours[i] = (int) ChronoUnit.HOURS.between(gridStart, schedules.get(i).getStartDateTime());
+            }
+            tennisCourts.add(TennisCourtSlotsDTO.builder()
+                    .id(tennisCourtId)
+                    .name(schedules.get(0).getTennisCourtName())
+                    .scheduleIds(scheduleIds)
+                    .startHours(startHours)
+                    .build());
+        });
+        return ScheduleGridDTO.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .tennisCourts(tennisCourts)
+                .build();
     }
 
+    @Transactional(readOnly = true)
     public ScheduleDTO findSchedule(Long scheduleId) {
-        //TODO: implement
-        return null;
+        return scheduleRepository.findWithTennisCourtById(scheduleId).map(scheduleMapper::map).orElseThrow(() -> {
+            throw new EntityNotFoundException("Schedule not found.");
+        });
     }
 
+    @Cacheable(cacheNames = CacheConfig.TENNIS_COURT_SCHEDULES, sync = true)
+    @Transactional(readOnly = true)
     public List<ScheduleDTO> findSchedulesByTennisCourtId(Long tennisCourtId) {
-        return scheduleMapper.map(scheduleRepository.findByTennisCourt_IdOrderByStartDateTime(tennisCourtId));
+        return scheduleMapper.mapViews(scheduleRepository.findViewsByTennisCourtId(tennisCourtId));
+    }
+
+    private List<ScheduleView> findViewsByDates(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!endDate.isAfter(startDate)) {
+            throw new IllegalArgumentException("End date must be after start date.");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) > MAX_LISTED_DAYS) {
+            throw new IllegalArgumentException("Cannot list more than " + MAX_LISTED_DAYS + " days of schedules at once.");
+        }
+        return scheduleRepository.findViewsByStartDateTimeBetween(startDate, endDate);
+    }
+
+    private void persist(List<Schedule> schedules) {
+        scheduleRepository.saveAll(schedules);
+        entityManager.flush();
+        schedules.forEach(schedule -> slotAvailabilityIndex.registerSchedule(schedule.getId(),
+                schedule.getTennisCourt().getId(), schedule.getStartDateTime()));
+        entityManager.clear();
+        schedules.clear();
+    }
+
+    private void validateRecurringSchedule(CreateRecurringScheduleRequestDTO request) {
+        if (request.getEndDate().isBefore(request.getStartDate())) {
+            throw new IllegalArgumentException("End date must not be before start date.");
+        }
+        if (!request.getOpeningTime().equals(request.getOpeningTime().truncatedTo(ChronoUnit.HOURS))) {
+            throw new IllegalArgumentException("Opening time must be on the hour.");
+        }
+
+        long hours = ChronoUnit.HOURS.between(request.getOpeningTime(), request.getClosingTime());
+        if (hours < 1) {
+            throw new IllegalArgumentException("Opening hours must fit at least one hourly slot.");
+        }
+
+        long days = ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1;
+        if (days * hours * request.getTennisCourtIds().size() > MAX_GENERATED_SCHEDULES) {
+            throw new IllegalArgumentException("Cannot generate more than " + MAX_GENERATED_SCHEDULES + " schedules at once.");
+        }
+    }
+
+    private static Schedule newSchedule(TennisCourt tennisCourt, LocalDateTime startDateTime) {
+        return Schedule.builder()
+                .tennisCourt(tennisCourt)
+                .startDateTime(startDateTime)
+                .endDateTime(startDateTime.plusHours(1))
+                .build();
+    }
+
+    private static String slotKey(Long tennisCourtId, LocalDateTime startDateTime) {
+        return tennisCourtId + "@" + startDateTime;
     }
 }
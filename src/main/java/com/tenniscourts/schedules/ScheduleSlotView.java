@@ -0,0 +1,12 @@
+package com.tenniscourts.schedules;
+
+import java.time.LocalDateTime;
+
+public interface ScheduleSlotView {
+
+    Long getId();
+
+    Long getTennisCourtId();
+
+    LocalDateTime getStartDateTime();
+}
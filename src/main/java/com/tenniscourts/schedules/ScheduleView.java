@@ -0,0 +1,19 @@
+package com.tenniscourts.schedules;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a {@link ScheduleDTO} is built from, read without loading {@link Schedule} entities.
+ */
+public interface ScheduleView {
+
+    Long getId();
+
+    Long getTennisCourtId();
+
+    String getTennisCourtName();
+
+    LocalDateTime getStartDateTime();
+
+    LocalDateTime getEndDateTime();
+}
@@ -0,0 +1,273 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.tenniscourts.config.persistence.TransactionCallbacks.afterCommit;
+
+/**
+ * In-memory index of hourly slots per tennis court and day.
+ * <p>
+ * Every day of a court is kept as two 24-bit masks packed into a single {@code long}: the hours that
+ * have a {@link Schedule} and the hours that are currently booked. Free slot lookups are answered from
+ * these masks without touching the database. The index is loaded once while the application starts,
+ * before the web server and the scheduled jobs can change anything, so the load never overwrites a
+ * change made meanwhile. It is kept up to date by the services that create schedules and change
+ * reservations; updates issued inside a transaction are applied only after it commits. Listeners are
+ * told about every slot whose free state changed, right after the change is applied.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@RequiredArgsConstructor
+public class SlotAvailabilityIndex {
+
+    private static final int SLOTS_PER_DAY = 24;
+
+    private static final long DAY_MASK = (1L << SLOTS_PER_DAY) - 1;
+
+    private final ScheduleRepository scheduleRepository;
+
+    private final ConcurrentMap<Long, ConcurrentSkipListMap<LocalDate, DaySlots>> courts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, SlotKey> slotsBySchedule = new ConcurrentHashMap<>();
+
+    private final List<Consumer<SlotChangeDTO>> listeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void load() {
+        long start = System.nanoTime();
+
+        List<ScheduleSlotView> schedules = scheduleRepository.findAllSlots();
+        schedules.forEach(schedule -> register(schedule.getId(), schedule.getTennisCourtId(), schedule.getStartDateTime()));
+
+        Set<Long> reservedScheduleIds = new HashSet<>(scheduleRepository.findIdsWithReservationStatus(ReservationStatus.READY_TO_PLAY));
+        reservedScheduleIds.forEach(scheduleId -> setBooked(scheduleId, true));
+
+        log.info("Slot availability index loaded {} schedules ({} booked) in {} ms", schedules.size(),
+                reservedScheduleIds.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void addListener(Consumer<SlotChangeDTO> listener) {
+        listeners.add(listener);
+    }
+
+    public void registerSchedule(Long scheduleId, Long tennisCourtId, LocalDateTime startDateTime) {
+        afterCommit(() -> register(scheduleId, tennisCourtId, startDateTime));
+    }
+
+    public void markBooked(Long scheduleId) {
+        afterCommit(() -> setBooked(scheduleId, true));
+    }
+
+    public void markFree(Long scheduleId) {
+        afterCommit(() -> setBooked(scheduleId, false));
+    }
+
+    public void removeSchedules(Collection<Long> scheduleIds) {
+        afterCommit(() -> scheduleIds.forEach(this::remove));
+    }
+
+    public boolean isFree(Long scheduleId) {
+        SlotKey key = slotsBySchedule.get(scheduleId);
+        if (key == null) {
+            return false;
+        }
+        DaySlots day = daySlots(key.getTennisCourtId(), key.getDate());
+        return day != null && (day.freeMask() & (1L << key.getHour())) != 0;
+    }
+
+    /**
+     * The indexed slot of a schedule, whether it is free or not.
+     */
+    public Optional<ScheduleSlotView> findSlot(Long scheduleId) {
+        SlotKey key = slotsBySchedule.get(scheduleId);
+        return key == null ? Optional.empty()
+                : Optional.of(new IndexedSlot(scheduleId, key.getTennisCourtId(), key.getDate().atTime(key.getHour(), 0)));
+    }
+
+    public List<FreeSlotDTO> findFreeSlots(Long tennisCourtId, LocalDate date) {
+        LocalDateTime now = LocalDateTime.now();
+        if (tennisCourtId != null) {
+            return freeSlots(tennisCourtId, date, now, new ArrayList<>());
+        }
+
+        List<FreeSlotDTO> freeSlots = new ArrayList<>();
+        courts.keySet().stream().sorted().forEach(courtId -> freeSlots(courtId, date, now, freeSlots));
+        return freeSlots;
+    }
+
+    private List<FreeSlotDTO> freeSlots(Long tennisCourtId, LocalDate date, LocalDateTime now, List<FreeSlotDTO> target) {
+        DaySlots day = daySlots(tennisCourtId, date);
+        if (day == null) {
+            return target;
+        }
+
+        long free = day.freeMask();
+        while (free != 0) {
+            int hour = Long.numberOfTrailingZeros(free);
+            free &= free - 1;
+
+            LocalDateTime startDateTime = date.atTime(hour, 0);
+            if (startDateTime.isAfter(now)) {
+                target.add(FreeSlotDTO.builder()
+                        .scheduleId(day.scheduleId(hour))
+                        .tennisCourtId(tennisCourtId)
+                        .startDateTime(startDateTime)
+                        .endDateTime(startDateTime.plusHours(1))
+                        .build());
+            }
+        }
+        return target;
+    }
+
+    private void register(Long scheduleId, Long tennisCourtId, LocalDateTime startDateTime) {
+        SlotKey key = new SlotKey(tennisCourtId, startDateTime.toLocalDate(), startDateTime.getHour());
+        DaySlots day = courts.computeIfAbsent(tennisCourtId, id -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(key.getDate(), date -> new DaySlots());
+
+        if (day.addSchedule(key.getHour(), scheduleId)) {
+            if (slotsBySchedule.put(scheduleId, key) == null) {
+                notifyListeners(scheduleId, key, true);
+            }
+        } else {
+            log.warn("Schedule {} overlaps another schedule of tennis court {} at {}, not indexed", scheduleId,
+                    tennisCourtId, startDateTime);
+        }
+    }
+
+    private void remove(Long scheduleId) {
+        SlotKey key = slotsBySchedule.remove(scheduleId);
+        if (key == null) {
+            return;
+        }
+        Map<LocalDate, DaySlots> days = courts.get(key.getTennisCourtId());
+        if (days != null) {
+            days.computeIfPresent(key.getDate(), (date, day) -> day.removeSchedule(key.getHour(), scheduleId) ? null : day);
+        }
+        notifyListeners(scheduleId, key, false);
+    }
+
+    private void setBooked(Long scheduleId, boolean booked) {
+        SlotKey key = slotsBySchedule.get(scheduleId);
+        if (key == null) {
+            return;
+        }
+        DaySlots day = daySlots(key.getTennisCourtId(), key.getDate());
+        if (day != null && day.setBooked(key.getHour(), booked)) {
+            notifyListeners(scheduleId, key, !booked);
+        }
+    }
+
+    private void notifyListeners(Long scheduleId, SlotKey key, boolean free) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        LocalDateTime startDateTime = key.getDate().atTime(key.getHour(), 0);
+        SlotChangeDTO change = SlotChangeDTO.builder()
+                .scheduleId(scheduleId)
+                .tennisCourtId(key.getTennisCourtId())
+                .startDateTime(startDateTime)
+                .endDateTime(startDateTime.plusHours(1))
+                .free(free)
+                .build();
+        for (Consumer<SlotChangeDTO> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException ex) {
+                log.warn("Slot availability listener failed for schedule {}", scheduleId, ex);
+            }
+        }
+    }
+
+    private DaySlots daySlots(Long tennisCourtId, LocalDate date) {
+        Map<LocalDate, DaySlots> days = courts.get(tennisCourtId);
+        return days == null ? null : days.get(date);
+    }
+
+    /**
+     * Slots of one court on one day. The low 24 bits of {@code state} flag the scheduled hours and the
+     * next 24 bits flag the booked ones, so readers always see a consistent pair.
+     */
+    private static final class DaySlots {
+
+        private final long[] scheduleIds = new long[SLOTS_PER_DAY];
+
+        private final AtomicLong state = new AtomicLong();
+
+        long freeMask() {
+            long current = state.get();
+            return current & ~(current >>> SLOTS_PER_DAY) & DAY_MASK;
+        }
+
+        long scheduleId(int hour) {
+            return scheduleIds[hour];
+        }
+
+        synchronized boolean addSchedule(int hour, long scheduleId) {
+            long bit = 1L << hour;
+            if ((state.get() & bit) != 0) {
+                return scheduleIds[hour] == scheduleId;
+            }
+            scheduleIds[hour] = scheduleId;
+            state.getAndUpdate(current -> current | bit);
+            return true;
+        }
+
+        /**
+         * Clears the hour of the schedule and tells whether the day has no schedules left.
+         */
+        synchronized boolean removeSchedule(int hour, long scheduleId) {
+            if (scheduleIds[hour] == scheduleId) {
+                long bits = (1L << hour) | (1L << (hour + SLOTS_PER_DAY));
+                scheduleIds[hour] = 0;
+                state.getAndUpdate(current -> current & ~bits);
+            }
+            return (state.get() & DAY_MASK) == 0;
+        }
+
+        /**
+         * Flags the hour as booked or free and tells whether that changed anything.
+         */
+        boolean setBooked(int hour, boolean booked) {
+            long bit = 1L << (hour + SLOTS_PER_DAY);
+            long previous = state.getAndUpdate(current -> booked ? current | bit : current & ~bit);
+            return ((previous & bit) != 0) != booked;
+        }
+    }
+
+    @Value
+    private static class SlotKey {
+        Long tennisCourtId;
+        LocalDate date;
+        int hour;
+    }
+
+    @Value
+    private static class IndexedSlot implements ScheduleSlotView {
+        Long id;
+        Long tennisCourtId;
+        LocalDateTime startDateTime;
+    }
+}
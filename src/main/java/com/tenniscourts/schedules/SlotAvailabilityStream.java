@@ -0,0 +1,322 @@
+package com.tenniscourts.schedules;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes slot availability to Server-Sent Events subscribers, so booking screens no longer poll.
+ * <p>
+ * A subscription covers a date range, optionally of a single court. It first gets a {@value #SNAPSHOT_EVENT}
+ * event with the free slots of the range, then a {@value #SLOT_EVENT} event for every slot of the range
+ * that becomes free or booked, as reported by the {@link SlotAvailabilityIndex} after commit.
+ * <p>
+ * Changes are queued per subscriber and written by a few writer threads, so a slow client never holds
+ * up a booking. The queue is bounded by {@code tenniscourts.sse.queue-capacity}: a subscriber that falls
+ * that far behind has its queue dropped and gets a fresh snapshot instead. A write that blocks for longer
+ * than {@code tenniscourts.sse.send-timeout} drops its subscriber and gets its writer replaced, so a
+ * client that stopped reading cannot hold up the others. Subscribers per node are
+ * bounded by {@code tenniscourts.sse.max-connections}, and connections end after
+ * {@code tenniscourts.sse.timeout}, after which clients reconnect and start from a new snapshot.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class SlotAvailabilityStream implements MeterBinder {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+
+    static final String SLOT_EVENT = "slot";
+
+    private static final int MAX_SUBSCRIBED_DAYS = 31;
+
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final ThreadPoolExecutor writers;
+
+    private final int maxConnections;
+
+    private final int queueCapacity;
+
+    private final Duration timeout;
+
+    private final long sendTimeoutNanos;
+
+    private final LongAdder resyncs = new LongAdder();
+
+    private final LongAdder stalls = new LongAdder();
+
+    public SlotAvailabilityStream(SlotAvailabilityIndex slotAvailabilityIndex,
+                                  @Value("${tenniscourts.sse.max-connections:1000}") int maxConnections,
+                                  @Value("${tenniscourts.sse.queue-capacity:256}") int queueCapacity,
+                                  @Value("${tenniscourts.sse.writer-threads:4}") int writerThreads,
+                                  @Value("${tenniscourts.sse.timeout:30m}") Duration timeout,
+                                  @Value("${tenniscourts.sse.send-timeout:5s}") Duration sendTimeout) {
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
+        this.maxConnections = maxConnections;
+        this.queueCapacity = queueCapacity;
+        this.timeout = timeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+
+        AtomicInteger threads = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        slotAvailabilityIndex.addListener(this::publish);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Long tennisCourtId, LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate) || startDate.plusDays(MAX_SUBSCRIBED_DAYS).isBefore(endDate.plusDays(1))) {
+            throw new IllegalArgumentException("End date must be on or after start date and at most "
+                    + MAX_SUBSCRIBED_DAYS + " days later.");
+        }
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new RejectedExecutionException("Too many availability subscribers.");
+        }
+
+        SseEmitter emitter = this.newEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(emitter, tennisCourtId, startDate, endDate, queueCapacity);
+        emitter.onCompletion(() -> this.close(subscription));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> this.close(subscription));
+        subscriptions.add(subscription);
+
+        subscription.resync.set(true);
+        this.schedule(subscription);
+        return emitter;
+    }
+
+    /**
+     * Comments are ignored by clients but fail on connections that were closed, which frees them
+     * before their timeout.
+     */
+    @Scheduled(fixedDelayString = "${tenniscourts.sse.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        subscriptions.forEach(subscription -> {
+            subscription.heartbeat.set(true);
+            this.schedule(subscription);
+        });
+    }
+
+    /**
+     * Drops subscribers whose write has blocked past the send timeout and adds a writer for each, which
+     * goes away once the blocked write returns. The emitter is completed by its own writer then, as the
+     * write holds it until it fails or the socket times out.
+     */
+    @Scheduled(fixedDelayString = "${tenniscourts.sse.send-check-interval-ms:1000}")
+    public void abortStalledSends() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            boolean stalled;
+            synchronized (subscription) {
+                stalled = subscription.sending && !subscription.stalled && now - subscription.sendStartedNanos > sendTimeoutNanos;
+                subscription.stalled |= stalled;
+            }
+            if (stalled) {
+                log.debug("Dropping slot availability stream that has not taken an event for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                stalls.increment();
+                this.close(subscription);
+                this.resizeWriters(1);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tenniscourts.sse.subscribers", connections, AtomicInteger::get)
+                .description("Open slot availability streams")
+                .register(registry);
+        FunctionCounter.builder("tenniscourts.sse.resyncs", resyncs, LongAdder::sum)
+                .description("Subscribers that fell behind and were sent a new snapshot")
+                .register(registry);
+        FunctionCounter.builder("tenniscourts.sse.stalls", stalls, LongAdder::sum)
+                .description("Subscribers dropped because a write to them blocked past the send timeout")
+                .register(registry);
+    }
+
+    private void publish(SlotChangeDTO change) {
+        LocalDate date = change.getStartDateTime().toLocalDate();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.covers(change.getTennisCourtId(), date)) {
+                if (!subscription.changes.offer(change)) {
+                    subscription.resync.set(true);
+                    resyncs.increment();
+                }
+                this.schedule(subscription);
+            }
+        }
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void schedule(Subscription subscription) {
+        if (subscription.scheduled.compareAndSet(false, true)) {
+            try {
+                writers.execute(() -> this.drain(subscription));
+            } catch (RejectedExecutionException ex) {
+                subscription.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Writes what is pending for one subscriber. At most one drain per subscriber runs at a time, and it
+     * goes on until nothing is left, so events are written in the order they were published.
+     */
+    private void drain(Subscription subscription) {
+        try {
+            do {
+                if (subscription.resync.getAndSet(false)) {
+                    subscription.changes.clear();
+                    this.send(subscription, SseEmitter.event().name(SNAPSHOT_EVENT).data(this.snapshot(subscription)));
+                }
+                SlotChangeDTO change;
+                while (!subscription.resync.get() && (change = subscription.changes.poll()) != null) {
+                    this.send(subscription, SseEmitter.event().name(SLOT_EVENT).data(change));
+                }
+                if (subscription.heartbeat.getAndSet(false)) {
+                    this.send(subscription, SseEmitter.event().comment("heartbeat"));
+                }
+                subscription.scheduled.set(false);
+            } while (subscription.hasPending() && subscription.scheduled.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException ex) {
+            log.debug("Closing slot availability stream: {}", ex.getMessage());
+            subscription.emitter.completeWithError(ex);
+            this.close(subscription);
+        }
+    }
+
+    private void send(Subscription subscription, SseEmitter.SseEventBuilder event) throws IOException {
+        synchronized (subscription) {
+            subscription.sending = true;
+            subscription.sendStartedNanos = System.nanoTime();
+        }
+        boolean stalled;
+        try {
+            subscription.emitter.send(event);
+        } finally {
+            synchronized (subscription) {
+                subscription.sending = false;
+                stalled = subscription.stalled;
+            }
+            if (stalled) {
+                this.resizeWriters(-1);
+            }
+        }
+        if (stalled) {
+            throw new IllegalStateException("Write blocked past the send timeout");
+        }
+    }
+
+    /**
+     * Grows the pool before its core so the core never exceeds the maximum, and shrinks it the other
+     * way round; writers above the new size end once they are idle.
+     */
+    private synchronized void resizeWriters(int delta) {
+        int size = writers.getMaximumPoolSize() + delta;
+        if (delta > 0) {
+            writers.setMaximumPoolSize(size);
+            writers.setCorePoolSize(size);
+        } else {
+            writers.setCorePoolSize(size);
+            writers.setMaximumPoolSize(size);
+        }
+    }
+
+    private List<FreeSlotDTO> snapshot(Subscription subscription) {
+        List<FreeSlotDTO> freeSlots = new ArrayList<>();
+        for (LocalDate date = subscription.startDate; !date.isAfter(subscription.endDate); date = date.plusDays(1)) {
+            freeSlots.addAll(slotAvailabilityIndex.findFreeSlots(subscription.tennisCourtId, date));
+        }
+        return freeSlots;
+    }
+
+    private void close(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            connections.decrementAndGet();
+        }
+    }
+
+    private static final class Subscription {
+
+        private final SseEmitter emitter;
+
+        private final Long tennisCourtId;
+
+        private final LocalDate startDate;
+
+        private final LocalDate endDate;
+
+        private final Queue<SlotChangeDTO> changes;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final AtomicBoolean resync = new AtomicBoolean();
+
+        private final AtomicBoolean heartbeat = new AtomicBoolean();
+
+        private boolean sending;
+
+        private long sendStartedNanos;
+
+        private boolean stalled;
+
+        Subscription(SseEmitter emitter, Long tennisCourtId, LocalDate startDate, LocalDate endDate, int queueCapacity) {
+            this.emitter = emitter;
+            this.tennisCourtId = tennisCourtId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.changes = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        boolean covers(Long changedTennisCourtId, LocalDate date) {
+            return (tennisCourtId == null || tennisCourtId.equals(changedTennisCourtId))
+                    && !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+
+        boolean hasPending() {
+            return resync.get() || heartbeat.get() || !changes.isEmpty();
+        }
+    }
+}
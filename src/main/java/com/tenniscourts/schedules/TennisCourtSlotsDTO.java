@@ -0,0 +1,24 @@
+package com.tenniscourts.schedules;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TennisCourtSlotsDTO {
+
+    private Long id;
+
+    private String name;
+
+    private long[] scheduleIds;
+
+    private int[] startHours;
+
+}
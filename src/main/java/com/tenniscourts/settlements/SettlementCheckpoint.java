@@ -0,0 +1,37 @@
+package com.tenniscourts.settlements;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+@Entity
+@Table
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Builder
+public class SettlementCheckpoint extends BaseEntity<Long> {
+
+    @NotNull
+    private LocalDateTime cutoffDateTime;
+
+    @NotNull
+    private Long lastReservationId;
+
+    private long played;
+
+    private long noShows;
+
+    private boolean completed;
+}
@@ -0,0 +1,10 @@
+package com.tenniscourts.settlements;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface SettlementCheckpointRepository extends JpaRepository<SettlementCheckpoint, Long> {
+
+    Optional<SettlementCheckpoint> findFirstByCompletedFalseOrderByIdDesc();
+}
@@ -0,0 +1,23 @@
+package com.tenniscourts.settlements;
+
+import com.tenniscourts.config.BaseRestController;
+import io.swagger.annotations.ApiOperation;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/settlements")
+@AllArgsConstructor
+public class SettlementController extends BaseRestController {
+
+    private final SettlementJob settlementJob;
+
+    @ApiOperation("Settles the deposits of reservations whose schedule has ended")
+    @PostMapping
+    public ResponseEntity<SettlementReportDTO> settle() {
+        return ResponseEntity.ok(settlementJob.run());
+    }
+}
@@ -0,0 +1,281 @@
+package com.tenniscourts.settlements;
+
+import com.tenniscourts.exceptions.BusinessException;
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventPublisher;
+import com.tenniscourts.outbox.ReservationEventType;
+import com.tenniscourts.reservations.ReservationService;
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Settles the deposit of every {@code READY_TO_PLAY} reservation whose schedule ended before the
+ * cutoff: checked-in guests get it refunded ({@code PLAYED}), the others forfeit it ({@code NO_SHOW}).
+ * <p>
+ * Reservations are read in id order, one chunk at a time, and each chunk is split between the workers,
+ * which write their share with a single JDBC batch in their own transaction, together with a
+ * {@code PLAYED} or {@code NO_SHOW} outbox event for every reservation they settled. Updates only apply to rows
+ * still in {@code READY_TO_PLAY}, and the last settled id is checkpointed after every chunk, so an
+ * interrupted run resumes where it stopped with the same cutoff and never settles a reservation twice.
+ * <p>
+ * A run starts once the database has every reservation change made before it, and skips reservations
+ * whose last change is still missing there, such as a check-in the journal store could not copy yet,
+ * so they are settled by a later run instead of by what the database says.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class SettlementJob {
+
+    private static final String FIND_PAST_DUE = "select r.id, r.schedule_id, r.guest_id, r.value, r.check_in_date_time from reservation r"
+            + " join schedule s on s.id = r.schedule_id"
+            + " where r.reservation_status = ? and s.end_date_time <= ? and r.id > ?"
+            + " order by r.id limit ?";
+
+    private static final String SETTLE = "update reservation"
+            + " set reservation_status = ?, value = ?, refund_value = ?, date_update = ?"
+            + " where id = ? and reservation_status = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final SettlementCheckpointRepository checkpointRepository;
+
+    private final ReservationService reservationService;
+
+    private final ReservationEventPublisher reservationEventPublisher;
+
+    private final ExecutorService workers;
+
+    private final int workerCount;
+
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public SettlementJob(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         SettlementCheckpointRepository checkpointRepository,
+                         ReservationService reservationService,
+                         ReservationEventPublisher reservationEventPublisher,
+                         @Value("${tenniscourts.settlement.workers:4}") int workerCount,
+                         @Value("${tenniscourts.settlement.chunk-size:5000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.reservationService = reservationService;
+        this.reservationEventPublisher = reservationEventPublisher;
+        this.workerCount = workerCount;
+        this.chunkSize = chunkSize;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "settlement-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Scheduled(cron = "${tenniscourts.settlement.cron:0 0 3 * * *}")
+    public void settleNightly() {
+        try {
+            SettlementReportDTO report = run();
+            log.info("Settled {} played and {} no-show reservations in {} ms ({}/s), skipped {} with changes missing in the database",
+                    report.getPlayed(), report.getNoShows(), report.getElapsedMillis(), report.getReservationsPerSecond(),
+                    report.getSkipped());
+        } catch (BusinessException ex) {
+            log.warn("Skipping nightly settlement: {}", ex.getMessage());
+        }
+    }
+
+    public SettlementReportDTO run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("Settlement is already running.");
+        }
+        try {
+            return settle();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private SettlementReportDTO settle() {
+        long start = System.nanoTime();
+        reservationService.awaitChangesInDatabase();
+        SettlementCheckpoint checkpoint = checkpointRepository.findFirstByCompletedFalseOrderByIdDesc().orElse(null);
+        boolean resumed = checkpoint != null;
+        if (!resumed) {
+            checkpoint = checkpointRepository.save(SettlementCheckpoint.builder()
+                    .cutoffDateTime(LocalDateTime.now())
+                    .lastReservationId(0L)
+                    .build());
+        } else {
+            log.info("Resuming settlement up to {} after reservation {}", checkpoint.getCutoffDateTime(), checkpoint.getLastReservationId());
+        }
+
+        Outcome total = new Outcome();
+        int chunks = 0;
+        List<PastDueReservation> chunk;
+        while (!(chunk = this.findPastDue(checkpoint)).isEmpty()) {
+            List<PastDueReservation> settleable = chunk.stream()
+                    .filter(reservation -> !reservationService.isChangePending(reservation.getId()))
+                    .collect(Collectors.toList());
+            Outcome outcome = this.settleChunk(settleable);
+            outcome.skipped = chunk.size() - settleable.size();
+            total.add(outcome);
+            chunks++;
+
+            checkpoint.setLastReservationId(chunk.get(chunk.size() - 1).getId());
+            checkpoint.setPlayed(checkpoint.getPlayed() + outcome.played);
+            checkpoint.setNoShows(checkpoint.getNoShows() + outcome.noShows);
+            checkpoint = checkpointRepository.save(checkpoint);
+        }
+        checkpoint.setCompleted(true);
+        checkpointRepository.save(checkpoint);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return SettlementReportDTO.builder()
+                .cutoffDateTime(checkpoint.getCutoffDateTime())
+                .resumed(resumed)
+                .chunks(chunks)
+                .played(total.played)
+                .noShows(total.noShows)
+                .refundedValue(total.refundedValue)
+                .skipped(total.skipped)
+                .elapsedMillis(elapsedMillis)
+                .reservationsPerSecond((total.played + total.noShows) * 1000 / Math.max(elapsedMillis, 1))
+                .build();
+    }
+
+    private List<PastDueReservation> findPastDue(SettlementCheckpoint checkpoint) {
+        return jdbcTemplate.query(FIND_PAST_DUE, (rs, rowNum) -> new PastDueReservation(rs.getLong(1), rs.getLong(2),
+                        rs.getObject(3) != null ? rs.getLong(3) : null, rs.getBigDecimal(4), rs.getTimestamp(5) != null),
+                ReservationStatus.READY_TO_PLAY.ordinal(), Timestamp.valueOf(checkpoint.getCutoffDateTime()),
+                checkpoint.getLastReservationId(), chunkSize);
+    }
+
+    private Outcome settleChunk(List<PastDueReservation> chunk) {
+        if (chunk.isEmpty()) {
+            return new Outcome();
+        }
+        int sliceSize = (chunk.size() + workerCount - 1) / workerCount;
+        List<CompletableFuture<Outcome>> slices = new ArrayList<>(workerCount);
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<PastDueReservation> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            slices.add(CompletableFuture.supplyAsync(() -> this.settleSlice(slice), workers));
+        }
+
+        Outcome outcome = new Outcome();
+        try {
+            slices.stream().map(CompletableFuture::join).forEach(outcome::add);
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+        return outcome;
+    }
+
+    private Outcome settleSlice(List<PastDueReservation> slice) {
+        LocalDateTime settledAt = LocalDateTime.now();
+        Timestamp now = Timestamp.valueOf(settledAt);
+        List<Object[]> updates = slice.stream()
+                .map(reservation -> reservation.isCheckedIn()
+                        ? new Object[]{ReservationStatus.PLAYED.ordinal(), BigDecimal.ZERO, reservation.getValue(), now,
+                        reservation.getId(), ReservationStatus.READY_TO_PLAY.ordinal()}
+                        : new Object[]{ReservationStatus.NO_SHOW.ordinal(), reservation.getValue(), BigDecimal.ZERO, now,
+                        reservation.getId(), ReservationStatus.READY_TO_PLAY.ordinal()})
+                .collect(Collectors.toList());
+
+        return transactionTemplate.execute(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(SETTLE, updates);
+
+            Outcome outcome = new Outcome();
+            List<ReservationEvent> events = new ArrayList<>();
+            for (int i = 0; i < slice.size(); i++) {
+                if (updated[i] == 0) {
+                    continue;
+                }
+                PastDueReservation reservation = slice.get(i);
+                if (reservation.isCheckedIn()) {
+                    outcome.played++;
+                    outcome.refundedValue = outcome.refundedValue.add(reservation.getValue());
+                } else {
+                    outcome.noShows++;
+                }
+                events.add(ReservationEvent.builder()
+                        .eventType(reservation.isCheckedIn() ? ReservationEventType.PLAYED : ReservationEventType.NO_SHOW)
+                        .reservationId(reservation.getId())
+                        .scheduleId(reservation.getScheduleId())
+                        .guestId(reservation.getGuestId())
+                        .value(reservation.isCheckedIn() ? BigDecimal.ZERO : reservation.getValue())
+                        .refundValue(reservation.isCheckedIn() ? reservation.getValue() : BigDecimal.ZERO)
+                        .occurredAt(settledAt)
+                        .build());
+            }
+            reservationEventPublisher.publishAll(events);
+            return outcome;
+        });
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class PastDueReservation {
+
+        private final long id;
+
+        private final long scheduleId;
+
+        private final Long guestId;
+
+        private final BigDecimal value;
+
+        private final boolean checkedIn;
+    }
+
+    private static class Outcome {
+
+        private long played;
+
+        private long noShows;
+
+        private long skipped;
+
+        private BigDecimal refundedValue = BigDecimal.ZERO;
+
+        private void add(Outcome other) {
+            played += other.played;
+            noShows += other.noShows;
+            skipped += other.skipped;
+            refundedValue = refundedValue.add(other.refundedValue);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tenniscourts.settlements;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementReportDTO {
+
+    @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime cutoffDateTime;
+
+    private boolean resumed;
+
+    private int chunks;
+
+    private long played;
+
+    private long noShows;
+
+    private BigDecimal refundedValue;
+
+    private long skipped;
+
+    private long elapsedMillis;
+
+    private long reservationsPerSecond;
+
+}
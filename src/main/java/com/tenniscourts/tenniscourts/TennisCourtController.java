@@ -1,26 +1,53 @@
 package com.tenniscourts.tenniscourts;
 
 import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.config.async.ControllerExecutor;
+import com.tenniscourts.config.cache.ResourceVersions;
+import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.validation.Valid;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/tennis-courts")
 @AllArgsConstructor
 public class TennisCourtController extends BaseRestController {
 
     private final TennisCourtService tennisCourtService;
 
-    //TODO: implement rest and swagger
-    public ResponseEntity<Void> addTennisCourt(TennisCourtDTO tennisCourtDTO) {
-        return ResponseEntity.created(locationByEntity(tennisCourtService.addTennisCourt(tennisCourtDTO).getId())).build();
+    private final ControllerExecutor controllerExecutor;
+
+    private final ResourceVersions resourceVersions;
+
+    @ApiOperation("Creates a tennis court")
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Void>> addTennisCourt(@Valid @RequestBody TennisCourtDTO tennisCourtDTO) {
+        Function<Long, URI> location = locationByEntity();
+        return controllerExecutor.submit(() -> ResponseEntity.created(location.apply(tennisCourtService.addTennisCourt(tennisCourtDTO).getId())).build());
     }
 
-    //TODO: implement rest and swagger
-    public ResponseEntity<TennisCourtDTO> findTennisCourtById(Long tennisCourtId) {
-        return ResponseEntity.ok(tennisCourtService.findTennisCourtById(tennisCourtId));
+    @ApiOperation("Finds a tennis court by id")
+    @GetMapping("/{tennisCourtId}")
+    public CompletableFuture<ResponseEntity<TennisCourtDTO>> findTennisCourtById(@PathVariable Long tennisCourtId, WebRequest request) {
+        return conditional(request, resourceVersions.ofTennisCourt(tennisCourtId),
+                () -> controllerExecutor.submit(() -> ResponseEntity.ok(tennisCourtService.findTennisCourtById(tennisCourtId))));
     }
 
-    //TODO: implement rest and swagger
-    public ResponseEntity<TennisCourtDTO> findTennisCourtWithSchedulesById(Long tennisCourtId) {
-        return ResponseEntity.ok(tennisCourtService.findTennisCourtWithSchedulesById(tennisCourtId));
+    @ApiOperation("Finds a tennis court with all of its schedule slots")
+    @GetMapping("/{tennisCourtId}/schedules")
+    public CompletableFuture<ResponseEntity<TennisCourtDTO>> findTennisCourtWithSchedulesById(@PathVariable Long tennisCourtId, WebRequest request) {
+        return conditional(request, resourceVersions.ofTennisCourt(tennisCourtId),
+                () -> controllerExecutor.submit(() -> ResponseEntity.ok(tennisCourtService.findTennisCourtWithSchedulesById(tennisCourtId))));
     }
 }
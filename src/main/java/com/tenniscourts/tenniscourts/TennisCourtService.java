@@ -1,9 +1,14 @@
 package com.tenniscourts.tenniscourts;
 
+import com.tenniscourts.config.cache.CacheConfig;
+import com.tenniscourts.config.cache.TennisCourtCacheEvictor;
 import com.tenniscourts.exceptions.EntityNotFoundException;
 import com.tenniscourts.schedules.ScheduleService;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @AllArgsConstructor
@@ -15,19 +20,36 @@ public class TennisCourtService {
 
     private final TennisCourtMapper tennisCourtMapper;
 
+    private final TennisCourtCacheEvictor tennisCourtCacheEvictor;
+
+    @CachePut(cacheNames = CacheConfig.TENNIS_COURTS, key = "#result.id")
     public TennisCourtDTO addTennisCourt(TennisCourtDTO tennisCourt) {
-        return tennisCourtMapper.map(tennisCourtRepository.saveAndFlush(tennisCourtMapper.map(tennisCourt)));
+        TennisCourt created = tennisCourtRepository.saveAndFlush(tennisCourtMapper.map(tennisCourt));
+        // an ETag handed out with a 404 for this id must not match the new court
+        tennisCourtCacheEvictor.evictSchedules(created.getId());
+        return tennisCourtMapper.map(created);
     }
 
+    @Cacheable(CacheConfig.TENNIS_COURTS)
+    @Transactional(readOnly = true)
     public TennisCourtDTO findTennisCourtById(Long id) {
         return tennisCourtRepository.findById(id).map(tennisCourtMapper::map).orElseThrow(() -> {
             throw new EntityNotFoundException("Tennis Court not found.");
         });
     }
 
+    /**
+     * Cached DTOs are shared between requests, so the detail view is assembled into a new instance and
+     * reuses the schedule list cached by {@link ScheduleService#findSchedulesByTennisCourtId(Long)}.
+     */
+    @Cacheable(cacheNames = CacheConfig.TENNIS_COURT_DETAILS, sync = true)
+    @Transactional(readOnly = true)
     public TennisCourtDTO findTennisCourtWithSchedulesById(Long tennisCourtId) {
         TennisCourtDTO tennisCourtDTO = findTennisCourtById(tennisCourtId);
-        tennisCourtDTO.setTennisCourtSchedules(scheduleService.findSchedulesByTennisCourtId(tennisCourtId));
-        return tennisCourtDTO;
+        return TennisCourtDTO.builder()
+                .id(tennisCourtDTO.getId())
+                .name(tennisCourtDTO.getName())
+                .tennisCourtSchedules(scheduleService.findSchedulesByTennisCourtId(tennisCourtId))
+                .build();
     }
 }
@@ -0,0 +1,146 @@
+create sequence guest_seq start with 1 increment by 50;
+create sequence tennis_court_seq start with 1 increment by 50;
+create sequence schedule_seq start with 1 increment by 50;
+create sequence reservation_seq start with 1 increment by 50;
+create sequence settlement_checkpoint_seq start with 1 increment by 50;
+create sequence outbox_event_seq start with 1 increment by 50;
+
+create table guest (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table tennis_court (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table schedule (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    end_date_time timestamp not null,
+    start_date_time timestamp not null,
+    version bigint,
+    tennis_court_id bigint not null,
+    primary key (id)
+);
+
+create table reservation (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    check_in_date_time timestamp,
+    refund_value decimal(19,2),
+    reservation_status integer not null,
+    value decimal(19,2) not null,
+    guest_id bigint,
+    schedule_id bigint not null,
+    primary key (id)
+);
+
+create table settlement_checkpoint (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    completed boolean not null,
+    cutoff_date_time timestamp not null,
+    last_reservation_id bigint not null,
+    no_shows bigint not null,
+    played bigint not null,
+    primary key (id)
+);
+
+create table outbox_event (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    attempts integer not null,
+    dispatched_at timestamp,
+    event_type integer not null,
+    guest_id bigint,
+    last_error varchar(255),
+    next_attempt_at timestamp,
+    occurred_at timestamp not null,
+    refund_value decimal(19,2),
+    related_reservation_id bigint,
+    reservation_id bigint not null,
+    schedule_id bigint not null,
+    status integer not null,
+    value decimal(19,2),
+    primary key (id)
+);
+
+create table schedule_archive (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    end_date_time timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    start_date_time timestamp,
+    tennis_court_id bigint,
+    user_create bigint,
+    user_update bigint,
+    version bigint,
+    primary key (id)
+);
+
+create table reservation_archive (
+    id bigint not null,
+    check_in_date_time timestamp,
+    date_create timestamp,
+    date_update timestamp,
+    guest_id bigint,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    refund_value decimal(19,2),
+    reservation_status integer,
+    schedule_id bigint,
+    user_create bigint,
+    user_update bigint,
+    value decimal(19,2),
+    primary key (id)
+);
+
+create index idx_guest_name on guest (name, id);
+create index idx_schedule_start_date_time on schedule (start_date_time);
+create unique index idx_schedule_tennis_court_start on schedule (tennis_court_id, start_date_time);
+create index idx_reservation_schedule_status on reservation (schedule_id, reservation_status);
+create index idx_outbox_event_status on outbox_event (status, id);
+create index idx_schedule_archive_tennis_court_start on schedule_archive (tennis_court_id, start_date_time);
+create index idx_reservation_archive_schedule on reservation_archive (schedule_id);
+
+alter table schedule add constraint fk_schedule_tennis_court foreign key (tennis_court_id) references tennis_court;
+alter table reservation add constraint fk_reservation_guest foreign key (guest_id) references guest;
+alter table reservation add constraint fk_reservation_schedule foreign key (schedule_id) references schedule;
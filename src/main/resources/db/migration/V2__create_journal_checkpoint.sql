@@ -0,0 +1,13 @@
+create sequence journal_checkpoint_seq start with 1 increment by 50;
+
+create table journal_checkpoint (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    last_sequence bigint not null,
+    primary key (id)
+);
@@ -0,0 +1,6 @@
+alter table outbox_event add column claimed_by varchar(255);
+alter table outbox_event add column claimed_until timestamp;
+
+drop index idx_outbox_event_status;
+create index idx_outbox_event_status on outbox_event (status, occurred_at, id);
+create index idx_outbox_event_schedule on outbox_event (schedule_id, status);
@@ -0,0 +1,43 @@
+package com.tenniscourts.audit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AuditContextFilterTest {
+
+    private final AuditContextFilter filter = new AuditContextFilter(new String[]{"10.0.0.1"});
+
+    @Test
+    public void takesUserAndClientFromTrustedProxies() throws Exception {
+        AuditContext auditContext = this.filter(this.request("10.0.0.1"));
+
+        Assert.assertEquals(Long.valueOf(42), auditContext.getUserId());
+        Assert.assertEquals("203.0.113.7", auditContext.getIpNumber());
+    }
+
+    @Test
+    public void ignoresHeadersFromAnyoneElse() throws Exception {
+        AuditContext auditContext = this.filter(this.request("198.51.100.9"));
+
+        Assert.assertEquals(CustomAuditEntityListener.USER_SYSTEM_ID, auditContext.getUserId());
+        Assert.assertEquals("198.51.100.9", auditContext.getIpNumber());
+    }
+
+    private MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/reservations");
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader(AuditContextFilter.USER_ID_HEADER, "42");
+        request.addHeader(AuditContextFilter.FORWARDED_FOR_HEADER, "203.0.113.7, 10.0.0.1");
+        return request;
+    }
+
+    private AuditContext filter(MockHttpServletRequest request) throws Exception {
+        AtomicReference<AuditContext> seen = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(AuditContext.current()));
+        return seen.get();
+    }
+}
@@ -0,0 +1,142 @@
+package com.tenniscourts.config.async;
+
+import com.tenniscourts.audit.AuditContext;
+import com.tenniscourts.audit.AuditContextFilter;
+import com.tenniscourts.config.diagnostics.RequestSqlStats;
+import com.tenniscourts.exceptions.CustomResponseEntityExceptionHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ControllerExecutorTest {
+
+    private final ControllerExecutor executor = new ControllerExecutor(1, 1, false);
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void runsWorkWithTheContextOfTheRequestAndClearsItAfterwards() throws Exception {
+        RequestSqlStats stats = new RequestSqlStats();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/reservations");
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("X-User-Id", "42");
+
+        AtomicReference<Object[]> seen = new AtomicReference<>();
+        new AuditContextFilter(new String[]{"10.0.0.1"}).doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            RequestSqlStats.bind(stats);
+            try {
+                seen.set(executor.submit(() -> new Object[]{Thread.currentThread().getName(),
+                        AuditContext.current().getUserId(), RequestSqlStats.current()}).join());
+            } finally {
+                RequestSqlStats.clear();
+            }
+        });
+
+        Assert.assertTrue(((String) seen.get()[0]).startsWith("api-"));
+        Assert.assertEquals(42L, seen.get()[1]);
+        Assert.assertSame(stats, seen.get()[2]);
+
+        Object[] afterwards = executor.submit(() -> new Object[]{Thread.currentThread().getName(),
+                AuditContext.current().getUserId(), RequestSqlStats.current()}).join();
+        Assert.assertEquals(seen.get()[0], afterwards[0]);
+        Assert.assertNotEquals(42L, afterwards[1]);
+        Assert.assertNull(afterwards[2]);
+    }
+
+    @Test
+    public void rejectsWithServiceUnavailableOnceTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit(() -> this.await(release));
+        CompletableFuture<Boolean> queued = executor.submit(() -> true);
+        try {
+            MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new BusyController())
+                    .setControllerAdvice(new CustomResponseEntityExceptionHandler())
+                    .build();
+
+            mockMvc.perform(get("/busy"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            release.countDown();
+        }
+        Assert.assertTrue(running.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submitThrowsRightAwayWhenTheQueueIsFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit(() -> this.await(release));
+            executor.submit(() -> true);
+            executor.submit(() -> true);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void startsAThreadPerTaskAndQueuesPastTheConcurrencyLimit() throws Exception {
+        AtomicInteger threads = new AtomicInteger();
+        ControllerExecutor perTask = new ControllerExecutor(1, 1, runnable -> new Thread(runnable, "api-" + threads.incrementAndGet()));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = perTask.submit(() -> this.await(release));
+            CompletableFuture<String> queued = perTask.submit(() -> Thread.currentThread().getName());
+            try {
+                perTask.submit(() -> true);
+                Assert.fail("Expected the task to be rejected");
+            } catch (RejectedExecutionException expected) {
+                // one running, one queued
+            }
+            Assert.assertFalse(queued.isDone());
+
+            release.countDown();
+            Assert.assertTrue(running.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("api-2", queued.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("api-3", perTask.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            perTask.shutdown();
+        }
+    }
+
+    private boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @RestController
+    private class BusyController {
+
+        @GetMapping("/busy")
+        public CompletableFuture<String> busy() {
+            return executor.submit(() -> "served");
+        }
+    }
+}
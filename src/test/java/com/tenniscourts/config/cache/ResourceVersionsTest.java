@@ -0,0 +1,34 @@
+package com.tenniscourts.config.cache;
+
+import com.tenniscourts.config.cache.ResourceVersions.ResourceVersion;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResourceVersionsTest {
+
+    private final ResourceVersions resourceVersions = new ResourceVersions();
+
+    @Test
+    public void changeMovesTheCourtAndTheSchedulesOnOnly() {
+        ResourceVersion court = resourceVersions.ofTennisCourt(1L);
+        ResourceVersion otherCourt = resourceVersions.ofTennisCourt(2L);
+        ResourceVersion schedules = resourceVersions.ofSchedules();
+
+        resourceVersions.tennisCourtChanged(1L);
+
+        Assert.assertNotEquals(court.getETag(), resourceVersions.ofTennisCourt(1L).getETag());
+        Assert.assertNotEquals(schedules.getETag(), resourceVersions.ofSchedules().getETag());
+        Assert.assertEquals(otherCourt, resourceVersions.ofTennisCourt(2L));
+    }
+
+    @Test
+    public void lastModifiedMovesOnBySecondsEvenWithinTheSameSecond() {
+        long lastModified = resourceVersions.ofTennisCourt(1L).getLastModified();
+
+        resourceVersions.tennisCourtChanged(1L);
+        resourceVersions.tennisCourtChanged(1L);
+
+        Assert.assertEquals(0, resourceVersions.ofTennisCourt(1L).getLastModified() % 1000);
+        Assert.assertTrue(resourceVersions.ofTennisCourt(1L).getLastModified() >= lastModified + 2000);
+    }
+}
@@ -0,0 +1,56 @@
+package com.tenniscourts.config.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+public class VersionedCacheTest {
+
+    private final ResourceVersions resourceVersions = new ResourceVersions();
+
+    private final VersionedCache cache = new VersionedCache(new ConcurrentMapCache("test"), resourceVersions::counterOfTennisCourt);
+
+    @Test
+    public void cachesWhatWasLoadedAtTheCurrentVersion() {
+        Assert.assertEquals("view", cache.get(1L, () -> "view"));
+
+        Assert.assertEquals("view", cache.get(1L).get());
+        Assert.assertEquals("view", cache.get(1L, () -> "other view"));
+    }
+
+    @Test
+    public void dropsAViewLoadedBeforeTheCourtChanged() {
+        Assert.assertEquals("old view", cache.get(1L, () -> {
+            resourceVersions.tennisCourtChanged(1L);
+            return "old view";
+        }));
+
+        Assert.assertNull(cache.get(1L));
+    }
+
+    @Test
+    public void neverServesAViewCachedBeforeTheCourtChanged() {
+        cache.get(1L, () -> "old view");
+        resourceVersions.tennisCourtChanged(1L);
+
+        Assert.assertNull(cache.get(1L));
+        Assert.assertEquals("new view", cache.get(1L, () -> "new view"));
+        Assert.assertEquals("new view", cache.get(1L).get());
+    }
+
+    @Test
+    public void leavesNothingBehindWhenTheLoadFails() {
+        try {
+            cache.get(1L, () -> {
+                throw new IllegalStateException("Database is down");
+            });
+            Assert.fail("Expected the load to fail");
+        } catch (Cache.ValueRetrievalException expected) {
+            // the next reader loads again
+        }
+
+        Assert.assertNull(cache.get(1L));
+        Assert.assertEquals("view", cache.get(1L, () -> "view"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.tenniscourts.config.diagnostics;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SqlDiagnosticsFilterTest {
+
+    private final Logger sqlLogger = (Logger) LoggerFactory.getLogger("tenniscourts.sql");
+
+    private final ListAppender<ILoggingEvent> logged = new ListAppender<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SqlQueryLog sqlQueryLog = new SqlQueryLog(0, 0, 100);
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        logged.start();
+        sqlLogger.addAppender(logged);
+        sqlLogger.setLevel(Level.INFO);
+        sqlQueryLog.start();
+
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sql-diagnostics;DB_CLOSE_DELAY=-1");
+        JdbcTemplate unlogged = new JdbcTemplate(h2);
+        unlogged.execute("create table if not exists court (id bigint primary key)");
+        unlogged.execute("delete from court");
+        jdbcTemplate = new JdbcTemplate(ProxyDataSourceBuilder.create(h2).listener(sqlQueryLog).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sqlQueryLog.shutdown();
+        sqlLogger.detachAppender(logged);
+    }
+
+    @Test
+    public void countsTheStatementsOfTheRequestAndWarnsOverBudget() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tennis-courts/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/tennis-courts/{id}");
+
+        new SqlDiagnosticsFilter(meterRegistry, 2).doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            jdbcTemplate.batchUpdate("insert into court (id) values (?)", Arrays.asList(new Object[]{1L}, new Object[]{2L}));
+            for (long id = 1; id <= 3; id++) {
+                jdbcTemplate.queryForList("select id from court where id = ?", Long.class, id);
+            }
+        });
+
+        DistributionSummary statements = meterRegistry.get("tenniscourts.http.statements")
+                .tag("method", "GET").tag("uri", "/tennis-courts/{id}").summary();
+        Assert.assertEquals(1, statements.count());
+        Assert.assertEquals(4, statements.totalAmount(), 0);
+        Assert.assertNull(RequestSqlStats.current());
+
+        List<String> warnings = this.awaitLogged(Level.WARN, 1);
+        Assert.assertTrue(warnings.get(0), warnings.get(0).contains("ran 3 queries (budget 2)"));
+        Assert.assertTrue(warnings.get(0), warnings.get(0).contains("most repeated x3: select id from court where id = ?"));
+    }
+
+    @Test
+    public void logsSlowStatementsWithoutBindParameters() throws Exception {
+        jdbcTemplate.queryForList("select id from court where id = ?", Long.class, 42L);
+
+        List<String> records = this.awaitLogged(Level.INFO, 1);
+        Assert.assertTrue(records.get(0), records.get(0).startsWith("slow "));
+        Assert.assertTrue(records.get(0), records.get(0).endsWith("select id from court where id = ?"));
+        Assert.assertEquals(0, sqlQueryLog.getDroppedRecords());
+    }
+
+    private List<String> awaitLogged(Level level, int count) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            List<String> messages = logged.list.stream()
+                    .filter(event -> event.getLevel() == level)
+                    .map(ILoggingEvent::getFormattedMessage)
+                    .collect(Collectors.toList());
+            if (messages.size() >= count) {
+                return messages;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Expected " + count + " " + level + " records, got " + logged.list);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tenniscourts.config.idempotency;
+
+import com.tenniscourts.exceptions.BusinessException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdempotencyStoreTest {
+
+    private final IdempotencyStore idempotencyStore = new IdempotencyStore(100, Duration.ofMinutes(1));
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    public void replaysTheFirstResponseForTheSameKey() throws Exception {
+        ResponseEntity<Integer> first = idempotencyStore.execute("book", "key-1", 42L, this::work).get();
+        ResponseEntity<Integer> retry = idempotencyStore.execute("book", "key-1", 42L, this::work).get();
+
+        Assert.assertEquals(1, executions.get());
+        Assert.assertEquals(first.getBody(), retry.getBody());
+        Assert.assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void duplicatesWaitForTheRequestInFlight() throws Exception {
+        CompletableFuture<ResponseEntity<Integer>> inFlight = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<Integer>> first = idempotencyStore.execute("book", "key-1", 42L, () -> inFlight);
+        CompletableFuture<ResponseEntity<Integer>> duplicate = idempotencyStore.execute("book", "key-1", 42L, this::work);
+
+        Assert.assertFalse(duplicate.isDone());
+        inFlight.complete(ResponseEntity.ok(7));
+
+        Assert.assertEquals(Integer.valueOf(7), first.get().getBody());
+        Assert.assertEquals(Integer.valueOf(7), duplicate.get().getBody());
+        Assert.assertEquals(0, executions.get());
+    }
+
+    @Test(expected = BusinessException.class)
+    public void rejectsTheSameKeyForADifferentRequest() {
+        idempotencyStore.execute("book", "key-1", 42L, this::work);
+        idempotencyStore.execute("book", "key-1", 43L, this::work);
+    }
+
+    @Test
+    public void runsAgainAfterAFailure() throws Exception {
+        CompletableFuture<ResponseEntity<Integer>> failed = idempotencyStore.execute("book", "key-1", 42L,
+                () -> CompletableFuture.supplyAsync(() -> {
+                    throw new IllegalStateException("Connection lost");
+                }));
+        try {
+            failed.get();
+            Assert.fail("Expected the first attempt to fail");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+
+        Assert.assertEquals(Integer.valueOf(1), idempotencyStore.execute("book", "key-1", 42L, this::work).get().getBody());
+    }
+
+    @Test
+    public void keepsKeysOfDifferentOperationsApart() throws Exception {
+        idempotencyStore.execute("book", "key-1", 42L, this::work).get();
+        idempotencyStore.execute("cancel", "key-1", 42L, this::work).get();
+
+        Assert.assertEquals(2, executions.get());
+    }
+
+    private CompletableFuture<ResponseEntity<Integer>> work() {
+        return CompletableFuture.completedFuture(ResponseEntity.ok(executions.incrementAndGet()));
+    }
+}
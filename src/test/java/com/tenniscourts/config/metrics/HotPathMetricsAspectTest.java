@@ -0,0 +1,82 @@
+package com.tenniscourts.config.metrics;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(HotPathMetricsAspectTest.Config.class)
+public class HotPathMetricsAspectTest {
+
+    @Autowired
+    GuestRepository guestRepository;
+
+    @Autowired
+    PingService pingService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void namesInheritedRepositoryMethodsAfterTheApplicationRepository() {
+        Guest guest = guestRepository.save(Guest.builder().name("Timed Guest").build());
+        guestRepository.findById(guest.getId());
+
+        Assert.assertEquals(1, meterRegistry.get("tenniscourts.repository")
+                .tags("class", "GuestRepository", "method", "findById", "exception", "none").timer().count());
+    }
+
+    @Test
+    public void tagsServiceCallsWithTheExceptionTheyThrow() {
+        pingService.ping(false);
+        try {
+            pingService.ping(true);
+            Assert.fail("Expected the call to fail");
+        } catch (IllegalStateException expected) {
+            // timed all the same
+        }
+
+        Assert.assertEquals(1, meterRegistry.get("tenniscourts.service")
+                .tags("class", "PingService", "method", "ping", "exception", "none").timer().count());
+        Assert.assertEquals(1, meterRegistry.get("tenniscourts.service")
+                .tags("class", "PingService", "method", "ping", "exception", "IllegalStateException").timer().count());
+    }
+
+    public static class PingService {
+
+        public String ping(boolean fail) {
+            if (fail) {
+                throw new IllegalStateException("Ping failed");
+            }
+            return "pong";
+        }
+    }
+
+    @TestConfiguration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    @Import(HotPathMetricsAspect.class)
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        PingService pingService() {
+            return new PingService();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.tenniscourts.guests;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GuestNameIndexTest {
+
+    @Mock
+    GuestRepository guestRepository;
+
+    @InjectMocks
+    GuestNameIndex guestNameIndex;
+
+    @Before
+    public void setUp() {
+        Mockito.when(guestRepository.findAllNames()).thenReturn(Arrays.asList(
+                guest(1L, "Roger Federer"),
+                guest(2L, "Rafael Nadal"),
+                guest(3L, "Federica  Pellegrini"),
+                guest(4L, "Jürgen Melzer")));
+
+        guestNameIndex.load();
+    }
+
+    @Test
+    public void searchMatchesTheStartOfAnyWord() {
+        Assert.assertEquals(Arrays.asList(1L, 3L), ids(guestNameIndex.search("Fed", 10)));
+        Assert.assertEquals(Arrays.asList(2L), ids(guestNameIndex.search("nad", 10)));
+        Assert.assertEquals(Arrays.asList(3L), ids(guestNameIndex.search("federica pel", 10)));
+        Assert.assertTrue(guestNameIndex.search("erer", 10).isEmpty());
+    }
+
+    @Test
+    public void searchIgnoresAccentsAndStopsAtTheLimit() {
+        Assert.assertEquals(Arrays.asList(4L), ids(guestNameIndex.search("jurg", 10)));
+        Assert.assertEquals(1, guestNameIndex.search("fed", 1).size());
+    }
+
+    @Test
+    public void renamedAndRemovedGuestsAreFoundByTheirCurrentNameOnly() {
+        guestNameIndex.indexGuest(1L, "Roger Rasheed");
+        guestNameIndex.removeGuest(2L);
+
+        Assert.assertEquals(Arrays.asList(3L), ids(guestNameIndex.search("fed", 10)));
+        Assert.assertEquals(Arrays.asList(1L), ids(guestNameIndex.search("ra", 10)));
+        Assert.assertEquals("Roger Rasheed", guestNameIndex.search("rasheed", 10).get(0).getName());
+    }
+
+    @Test
+    public void loadKeepsChangesMadeWhileItRuns() {
+        Mockito.when(guestRepository.findAllNames()).thenAnswer(invocation -> {
+            guestNameIndex.removeGuest(2L);
+            guestNameIndex.indexGuest(5L, "Rafa Nadal Jr");
+            guestNameIndex.indexGuest(1L, "Roger Rasheed");
+            return Arrays.asList(guest(1L, "Roger Federer"), guest(2L, "Rafael Nadal"));
+        });
+
+        guestNameIndex.load();
+
+        Assert.assertEquals(Arrays.asList(5L), ids(guestNameIndex.search("nadal", 10)));
+        Assert.assertEquals(Arrays.asList(3L), ids(guestNameIndex.search("fed", 10)));
+        Assert.assertEquals(Arrays.asList(5L, 1L), ids(guestNameIndex.search("ra", 10)));
+    }
+
+    private static List<Long> ids(List<GuestDTO> guests) {
+        return guests.stream().map(GuestDTO::getId).collect(Collectors.toList());
+    }
+
+    private static GuestNameView guest(Long id, String name) {
+        return new GuestNameView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
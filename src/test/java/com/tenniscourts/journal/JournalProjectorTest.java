@@ -0,0 +1,151 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventPublisher;
+import com.tenniscourts.outbox.ReservationEventType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+public class JournalProjectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ReservationJournal journal = Mockito.mock(ReservationJournal.class);
+
+    private final JournalCheckpointRepository checkpointRepository = Mockito.mock(JournalCheckpointRepository.class);
+
+    private final ReservationEventPublisher reservationEventPublisher = Mockito.mock(ReservationEventPublisher.class);
+
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+    private final List<Long> published = new ArrayList<>();
+
+    private JournalProjector projector;
+
+    @Before
+    public void setUp() throws Exception {
+        Mockito.when(journal.getDirectory()).thenReturn(folder.getRoot().toPath());
+        Mockito.when(journal.awaitDurable(ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong())).thenReturn(true);
+        Mockito.when(checkpointRepository.findFirstByOrderByIdAsc())
+                .thenReturn(Optional.of(JournalCheckpoint.builder().lastSequence(0L).build()));
+        Mockito.when(checkpointRepository.save(ArgumentMatchers.any())).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(transactionManager.getTransaction(ArgumentMatchers.any())).thenReturn(new SimpleTransactionStatus());
+        Mockito.doAnswer(invocation -> {
+            List<ReservationEvent> events = invocation.getArgument(0);
+            events.forEach(event -> published.add(event.getEventId()));
+            return null;
+        }).when(reservationEventPublisher).publishAll(ArgumentMatchers.any());
+
+        projector = new JournalProjector(journal, checkpointRepository, reservationEventPublisher, jdbcTemplate,
+                transactionManager, 500, 3, 3);
+        projector.recover();
+    }
+
+    @Test
+    public void parksAnEventThatKeepsFailingAndProjectsTheOthers() throws Exception {
+        this.failInsertOf(2L, new DataIntegrityViolationException("Guest does not exist"));
+        Arrays.asList(booked(1), booked(2), booked(3)).forEach(projector::submit);
+
+        projector.catchUp();
+
+        Assert.assertEquals(3, projector.getProjectedSequence());
+        Assert.assertEquals(Arrays.asList(1L, 3L), published);
+        Assert.assertTrue(Files.exists(folder.getRoot().toPath().resolve("parked").resolve(String.format("%020d.event", 2))));
+    }
+
+    @Test
+    public void tracksReservationsTheDatabaseMissesAChangeOf() throws Exception {
+        this.failInsertOf(2L, new DataIntegrityViolationException("Guest does not exist"));
+        Arrays.asList(booked(1), booked(2), booked(3)).forEach(projector::submit);
+        Assert.assertTrue(projector.isUnprojected(1L));
+        Assert.assertFalse(projector.awaitProjected(10));
+
+        projector.catchUp();
+
+        Assert.assertTrue(projector.awaitProjected(10));
+        Assert.assertFalse(projector.isUnprojected(1L));
+        Assert.assertTrue(projector.isUnprojected(2L));
+        Assert.assertFalse(projector.isUnprojected(3L));
+
+        JournalProjector restarted = new JournalProjector(journal, checkpointRepository, reservationEventPublisher,
+                jdbcTemplate, transactionManager, 500, 3, 3);
+        restarted.recover();
+        Assert.assertTrue(restarted.isUnprojected(2L));
+    }
+
+    @Test
+    public void keepsEventsWhileTheDatabaseIsUnreachable() throws Exception {
+        this.failInsertOf(1L, new CannotGetJdbcConnectionException("Connection refused"));
+        projector.submit(booked(1));
+
+        try {
+            projector.catchUp();
+            Assert.fail("Expected the projection to fail");
+        } catch (CannotGetJdbcConnectionException expected) {
+            // the event stays queued
+        }
+
+        Assert.assertEquals(0, projector.getProjectedSequence());
+        Assert.assertFalse(Files.exists(folder.getRoot().toPath().resolve("parked")));
+    }
+
+    @Test
+    public void refusesChangesOnceTheBacklogIsFull() {
+        projector.submit(booked(1));
+        projector.submit(booked(2));
+        projector.ensureCapacity(1);
+
+        projector.submit(booked(3));
+        try {
+            projector.ensureCapacity(1);
+            Assert.fail("Expected the change to be refused");
+        } catch (RejectedExecutionException expected) {
+            // the store answers 503
+        }
+    }
+
+    private void failInsertOf(Long reservationId, RuntimeException failure) {
+        Mockito.when(jdbcTemplate.batchUpdate(ArgumentMatchers.anyString(), ArgumentMatchers.<List<Object[]>>any())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.stream().map(row -> row[0]).collect(Collectors.toList()).contains(reservationId)) {
+                throw failure;
+            }
+            return new int[rows.size()];
+        });
+    }
+
+    private static ReservationEvent booked(long sequence) {
+        return ReservationEvent.builder()
+                .eventId(sequence)
+                .eventType(ReservationEventType.BOOKED)
+                .reservationId(sequence)
+                .scheduleId(100 + sequence)
+                .guestId(1L)
+                .value(new BigDecimal(10))
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.tenniscourts.journal;
+
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ReservationJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ReservationJournal journal;
+
+    @After
+    public void closeJournal() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void replaysDurableEventsAfterReopening() throws Exception {
+        journal = this.open(DataSize.ofKilobytes(64), 0, 0, new ArrayList<>());
+        long last = 0;
+        for (long reservationId = 1; reservationId <= 3; reservationId++) {
+            last = journal.append(booked(reservationId)).getEventId();
+        }
+        Assert.assertTrue(journal.awaitDurable(last, 1000));
+        journal.close();
+
+        List<ReservationEvent> replayed = new ArrayList<>();
+        journal = this.open(DataSize.ofKilobytes(64), 1, 1, replayed);
+
+        Assert.assertEquals(2, replayed.size());
+        Assert.assertEquals(Long.valueOf(2), replayed.get(0).getEventId());
+        Assert.assertEquals(Long.valueOf(3), replayed.get(1).getReservationId());
+        Assert.assertEquals(ReservationEventType.BOOKED, replayed.get(1).getEventType());
+        Assert.assertEquals(0, new BigDecimal(10).compareTo(replayed.get(1).getValue()));
+        Assert.assertEquals(Long.valueOf(4), journal.append(booked(4)).getEventId());
+    }
+
+    @Test
+    public void endsAtATornRecord() throws Exception {
+        journal = this.open(DataSize.ofKilobytes(64), 0, 0, new ArrayList<>());
+        journal.append(booked(1));
+        long last = journal.append(booked(2)).getEventId();
+        Assert.assertTrue(journal.awaitDurable(last, 1000));
+        journal.close();
+
+        Path segment = this.segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long secondRecord = 16 + file.readInt();
+            file.seek(secondRecord + 20);
+            file.writeByte(file.readByte() ^ 0xff);
+        }
+
+        List<ReservationEvent> replayed = new ArrayList<>();
+        journal = this.open(DataSize.ofKilobytes(64), 0, 0, replayed);
+
+        Assert.assertEquals(1, replayed.size());
+        Assert.assertEquals(Long.valueOf(2), journal.append(booked(3)).getEventId());
+    }
+
+    @Test
+    public void rollsOverToNewSegmentsAndDeletesOldOnes() throws Exception {
+        journal = this.open(DataSize.ofBytes(256), 0, 0, new ArrayList<>());
+        long last = 0;
+        for (long reservationId = 1; reservationId <= 10; reservationId++) {
+            last = journal.append(booked(reservationId)).getEventId();
+        }
+        Assert.assertTrue(journal.awaitDurable(last, 1000));
+        int segments = this.segments().size();
+        Assert.assertTrue(segments > 2);
+
+        Assert.assertEquals(segments - 1, journal.deleteSegmentsThrough(last));
+        Assert.assertEquals(1, this.segments().size());
+        journal.close();
+
+        List<ReservationEvent> replayed = new ArrayList<>();
+        journal = this.open(DataSize.ofBytes(256), last - 1, last, replayed);
+        Assert.assertEquals(1, replayed.size());
+        Assert.assertEquals(Long.valueOf(10), replayed.get(0).getReservationId());
+        Assert.assertEquals(Long.valueOf(last + 1), journal.append(booked(11)).getEventId());
+    }
+
+    @Test
+    public void refusesToOpenWhenEventsAreMissing() throws Exception {
+        journal = this.open(DataSize.ofBytes(256), 0, 0, new ArrayList<>());
+        long last = 0;
+        for (long reservationId = 1; reservationId <= 10; reservationId++) {
+            last = journal.append(booked(reservationId)).getEventId();
+        }
+        Assert.assertTrue(journal.awaitDurable(last, 1000));
+        journal.deleteSegmentsThrough(last);
+        journal.close();
+        journal = null;
+
+        try {
+            this.open(DataSize.ofBytes(256), 0, last, new ArrayList<>());
+            Assert.fail("Expected the journal to refuse opening");
+        } catch (IllegalStateException ex) {
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("are missing"));
+        }
+        Assert.assertEquals(1, this.segments().size());
+    }
+
+    @Test
+    public void refusesToOpenWhenEndingBeforeAKnownEvent() throws Exception {
+        journal = this.open(DataSize.ofKilobytes(64), 0, 0, new ArrayList<>());
+        long last = journal.append(booked(1)).getEventId();
+        Assert.assertTrue(journal.awaitDurable(last, 1000));
+        journal.close();
+        journal = null;
+
+        try {
+            this.open(DataSize.ofKilobytes(64), 0, last + 1, new ArrayList<>());
+            Assert.fail("Expected the journal to refuse opening");
+        } catch (IllegalStateException ex) {
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("was seen before"));
+        }
+        Assert.assertEquals(1, this.segments().size());
+    }
+
+    private ReservationJournal open(DataSize segmentSize, long afterSequence, long lastKnownSequence,
+                                    List<ReservationEvent> replayed) throws Exception {
+        ReservationJournal opened = new ReservationJournal(folder.getRoot().getPath(), segmentSize);
+        opened.open(afterSequence, lastKnownSequence, replayed::add);
+        return opened;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.filter(file -> file.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static ReservationEvent booked(long reservationId) {
+        return ReservationEvent.builder()
+                .eventType(ReservationEventType.BOOKED)
+                .reservationId(reservationId)
+                .scheduleId(100 + reservationId)
+                .guestId(1L)
+                .value(new BigDecimal(10))
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.tenniscourts.outbox;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+public class OutboxDispatcherTest {
+
+    private final OutboxEventRepository outboxEventRepository = Mockito.mock(OutboxEventRepository.class);
+
+    private final List<Long> accepted = new CopyOnWriteArrayList<>();
+
+    private OutboxDispatcher outboxDispatcher;
+
+    @After
+    public void shutdown() {
+        outboxDispatcher.shutdown();
+    }
+
+    @Test
+    public void holdsBackLaterEventsOfAScheduleAfterAFailure() {
+        OutboxEvent failing = event(1L, 10L);
+        OutboxEvent sameSchedule = event(2L, 10L);
+        OutboxEvent otherSchedule = event(3L, 11L);
+        this.pending(failing, sameSchedule, otherSchedule);
+        outboxDispatcher = this.dispatcher(3, event -> {
+            if (event.getEventId() == 1L) {
+                throw new IllegalStateException("Mail server down");
+            }
+            accepted.add(event.getEventId());
+        });
+
+        outboxDispatcher.dispatch();
+
+        Assert.assertEquals(Collections.singletonList(3L), accepted);
+        Mockito.verify(outboxEventRepository).markDispatched(ArgumentMatchers.eq(Collections.singletonList(3L)),
+                ArgumentMatchers.eq(OutboxStatus.DISPATCHED), ArgumentMatchers.any());
+        Mockito.verify(outboxEventRepository).release(ArgumentMatchers.anyString());
+        Assert.assertEquals(1, failing.getAttempts());
+        Assert.assertEquals(OutboxStatus.PENDING, failing.getStatus());
+        Assert.assertTrue(failing.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    public void parksAnEventAfterTheLastAttemptAndMovesOn() {
+        OutboxEvent failing = event(1L, 10L);
+        failing.setAttempts(2);
+        OutboxEvent sameSchedule = event(2L, 10L);
+        this.pending(failing, sameSchedule);
+        outboxDispatcher = this.dispatcher(3, event -> {
+            if (event.getEventId() == 1L) {
+                throw new IllegalStateException("Mail server down");
+            }
+            accepted.add(event.getEventId());
+        });
+
+        outboxDispatcher.dispatch();
+
+        Assert.assertEquals(OutboxStatus.FAILED, failing.getStatus());
+        Assert.assertEquals(Collections.singletonList(2L), accepted);
+    }
+
+    @Test
+    public void waitsForTheRetryTimeOfAnEarlierEvent() {
+        OutboxEvent retrying = event(1L, 10L);
+        retrying.setNextAttemptAt(LocalDateTime.now().plusMinutes(1));
+        OutboxEvent sameSchedule = event(2L, 10L);
+        this.pending(retrying, sameSchedule);
+        outboxDispatcher = this.dispatcher(3, event -> accepted.add(event.getEventId()));
+
+        outboxDispatcher.dispatch();
+
+        Assert.assertTrue(accepted.isEmpty());
+        Mockito.verify(outboxEventRepository, Mockito.never()).markDispatched(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    private OutboxDispatcher dispatcher(int maxAttempts, ReservationEventConsumer consumer) {
+        return new OutboxDispatcher(outboxEventRepository, Collections.singletonList(consumer), 2, 100, maxAttempts,
+                Duration.ofDays(7), Duration.ofMinutes(5));
+    }
+
+    private void pending(OutboxEvent... events) {
+        Mockito.when(outboxEventRepository.findDispatchableIds(ArgumentMatchers.eq(OutboxStatus.PENDING), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Arrays.stream(events).map(OutboxEvent::getId).collect(Collectors.toList()))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(outboxEventRepository.findClaimed(ArgumentMatchers.anyString(), ArgumentMatchers.eq(OutboxStatus.PENDING)))
+                .thenReturn(Arrays.asList(events));
+    }
+
+    private static OutboxEvent event(Long id, Long scheduleId) {
+        OutboxEvent event = OutboxEvent.builder()
+                .eventType(ReservationEventType.BOOKED)
+                .reservationId(id)
+                .scheduleId(scheduleId)
+                .occurredAt(LocalDateTime.now())
+                .build();
+        event.setId(id);
+        return event;
+    }
+}
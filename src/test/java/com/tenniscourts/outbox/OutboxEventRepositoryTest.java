@@ -0,0 +1,90 @@
+package com.tenniscourts.outbox;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class OutboxEventRepositoryTest {
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Autowired
+    OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Test
+    public void findsDueEventsInTheOrderTheyOccurred() {
+        OutboxEvent later = this.save(10L, now.minusSeconds(1));
+        OutboxEvent earlier = this.save(11L, now.minusSeconds(2));
+
+        Assert.assertEquals(Arrays.asList(earlier.getId(), later.getId()), this.dispatchable(10));
+    }
+
+    @Test
+    public void skipsSchedulesWaitingForARetryWithoutTakingRoomInTheBatch() {
+        OutboxEvent retrying = this.save(10L, now.minusSeconds(3));
+        retrying.setNextAttemptAt(now.plusMinutes(1));
+        this.save(10L, now.minusSeconds(2));
+        OutboxEvent otherSchedule = this.save(11L, now.minusSeconds(1));
+        entityManager.flush();
+
+        Assert.assertEquals(Arrays.asList(otherSchedule.getId()), this.dispatchable(1));
+    }
+
+    @Test
+    public void leavesEventsClaimedByAnotherDispatcherAndTheirScheduleAlone() {
+        OutboxEvent first = this.save(10L, now.minusSeconds(3));
+        OutboxEvent second = this.save(10L, now.minusSeconds(2));
+        OutboxEvent otherSchedule = this.save(11L, now.minusSeconds(1));
+        entityManager.clear();
+
+        Assert.assertEquals(1, outboxEventRepository.claim(Arrays.asList(first.getId()), OutboxStatus.PENDING,
+                "node-a#1", now.plusMinutes(5), now));
+        Assert.assertEquals(Arrays.asList(otherSchedule.getId()), this.dispatchable(10));
+        Assert.assertEquals(0, outboxEventRepository.claim(Arrays.asList(first.getId()), OutboxStatus.PENDING,
+                "node-b#1", now.plusMinutes(5), now));
+
+        // node-b read its candidates before node-a's claim and won the later event of the schedule
+        outboxEventRepository.claim(Arrays.asList(second.getId(), otherSchedule.getId()), OutboxStatus.PENDING,
+                "node-b#1", now.plusMinutes(5), now);
+        entityManager.clear();
+        Assert.assertEquals(Arrays.asList(otherSchedule.getId()), this.ids(outboxEventRepository.findClaimed("node-b#1", OutboxStatus.PENDING)));
+        Assert.assertEquals(Arrays.asList(first.getId()), this.ids(outboxEventRepository.findClaimed("node-a#1", OutboxStatus.PENDING)));
+
+        outboxEventRepository.release("node-a#1");
+        outboxEventRepository.release("node-b#1");
+        entityManager.clear();
+        Assert.assertEquals(Arrays.asList(first.getId(), second.getId(), otherSchedule.getId()), this.dispatchable(10));
+    }
+
+    private List<Long> dispatchable(int batchSize) {
+        return outboxEventRepository.findDispatchableIds(OutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+    }
+
+    private List<Long> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+    }
+
+    private OutboxEvent save(Long scheduleId, LocalDateTime occurredAt) {
+        return entityManager.persistFlushFind(OutboxEvent.builder()
+                .eventType(ReservationEventType.BOOKED)
+                .reservationId(scheduleId)
+                .scheduleId(scheduleId)
+                .occurredAt(occurredAt)
+                .build());
+    }
+}
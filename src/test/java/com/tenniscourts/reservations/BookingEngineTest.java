@@ -0,0 +1,118 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.exceptions.BusinessException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+
+public class BookingEngineTest {
+
+    private final BookingEngine bookingEngine = new BookingEngine(transactionManager(), 16, 3, 5000);
+
+    @Test
+    public void serializesWorkOnTheSameSchedule() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        runConcurrently(8, () -> bookingEngine.execute(1L, () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(5);
+            return running.decrementAndGet();
+        }));
+
+        Assert.assertEquals(1, maxRunning.get());
+        Assert.assertEquals(8, bookingEngine.getStats().getExecutions());
+    }
+
+    @Test
+    public void runsDifferentSchedulesInParallel() throws Exception {
+        CountDownLatch bothInside = new CountDownLatch(2);
+        AtomicLong scheduleIds = new AtomicLong();
+
+        List<Boolean> results = runConcurrently(2, () -> bookingEngine.execute(scheduleIds.incrementAndGet(), () -> {
+            bothInside.countDown();
+            return await(bothInside);
+        }));
+
+        Assert.assertTrue(results.stream().allMatch(Boolean::booleanValue));
+        Assert.assertEquals(0, bookingEngine.getStats().getContendedLocks());
+    }
+
+    @Test
+    public void retriesOptimisticLockingFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = bookingEngine.execute(1L, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Reservation.class, 1L);
+            }
+            return attempts.get();
+        });
+
+        Assert.assertEquals(Integer.valueOf(3), result);
+        Assert.assertEquals(2, bookingEngine.getStats().getOptimisticLockRetries());
+    }
+
+    @Test(expected = BusinessException.class)
+    public void givesUpAfterMaxAttempts() {
+        bookingEngine.execute(1L, () -> {
+            throw new ObjectOptimisticLockingFailureException(Reservation.class, 1L);
+        });
+    }
+
+    private <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(task));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static PlatformTransactionManager transactionManager() {
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        return transactionManager;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.schedules.Schedule;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class RefundPolicyTest {
+
+    @Test
+    public void refundsTheWholeValueADayOrMoreAhead() {
+        Assert.assertEquals(new BigDecimal(10), RefundPolicy.refundValue(reservation(LocalDateTime.now().plusHours(25), 10)));
+    }
+
+    @Test
+    public void refundsNothingLessThanADayAhead() {
+        Assert.assertEquals(BigDecimal.ZERO, RefundPolicy.refundValue(reservation(LocalDateTime.now().plusHours(23), 10)));
+    }
+
+    @Test
+    public void namesTheRefundTiers() {
+        LocalDateTime start = LocalDateTime.now().plusDays(2);
+
+        Assert.assertEquals("full", RefundPolicy.tier(new BigDecimal(10), reservation(start, 0)));
+        Assert.assertEquals("partial", RefundPolicy.tier(new BigDecimal(4), reservation(start, 6)));
+        Assert.assertEquals("none", RefundPolicy.tier(BigDecimal.ZERO, reservation(start, 10)));
+    }
+
+    private static Reservation reservation(LocalDateTime startDateTime, long value) {
+        Schedule schedule = new Schedule();
+        schedule.setStartDateTime(startDateTime);
+        return Reservation.builder().schedule(schedule).value(new BigDecimal(value)).build();
+    }
+}
@@ -1,18 +1,36 @@
 package com.tenniscourts.reservations;
 
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.outbox.ReservationEventPublisher;
 import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.schedules.SlotAvailabilityIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 @SpringBootTest
@@ -23,6 +41,30 @@ public class ReservationServiceTest {
     @InjectMocks
     ReservationService reservationService;
 
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    BookingEngine bookingEngine;
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @Mock
+    GuestRepository guestRepository;
+
+    @Mock
+    ReservationMapper reservationMapper;
+
+    @Mock
+    SlotAvailabilityIndex slotAvailabilityIndex;
+
+    @Mock
+    ReservationEventPublisher reservationEventPublisher;
+
+    @Spy
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Test
     public void getRefundValueFullRefund() {
         Schedule schedule = new Schedule();
@@ -33,4 +75,93 @@ public class ReservationServiceTest {
 
         Assert.assertEquals(reservationService.getRefundValue(Reservation.builder().schedule(schedule).value(new BigDecimal(10L)).build()), new BigDecimal(10));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void rescheduleToTheSameSlotFailsBeforeAnyChange() {
+        Mockito.when(reservationRepository.findScheduleIdById(1L)).thenReturn(Optional.of(5L));
+
+        try {
+            reservationService.rescheduleReservation(1L, 5L);
+            Assert.fail("Expected the reschedule to be rejected");
+        } catch (IllegalArgumentException ex) {
+            Assert.assertEquals("Cannot reschedule to the same slot.", ex.getMessage());
+        }
+        Mockito.verifyNoInteractions(bookingEngine);
+        Mockito.verify(reservationRepository, Mockito.never()).save(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void rescheduleLocksBothSlotsInOneExecution() {
+        Mockito.when(reservationRepository.findScheduleIdById(1L)).thenReturn(Optional.of(5L));
+
+        reservationService.rescheduleReservation(1L, 7L);
+
+        Mockito.verify(bookingEngine).execute(ArgumentMatchers.eq(Arrays.asList(5L, 7L)), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void rescheduleToABookedSlotLeavesTheOldReservationReadyToPlay() {
+        Reservation previous = this.previousReservation();
+        Mockito.when(scheduleRepository.findForBookingByIdIn(Collections.singletonList(7L)))
+                .thenReturn(Collections.singletonList(schedule(7L)));
+        Mockito.when(reservationRepository.findScheduleIdsByReservationStatus(Collections.singletonList(7L), ReservationStatus.READY_TO_PLAY))
+                .thenReturn(Collections.singleton(7L));
+        ReservationService service = Mockito.spy(reservationService);
+
+        try {
+            service.rescheduleReservation(1L, 7L);
+            Assert.fail("Expected the reschedule to be rejected");
+        } catch (AlreadyExistsEntityException expected) {
+            // the target slot is taken
+        }
+
+        Assert.assertEquals(ReservationStatus.READY_TO_PLAY, previous.getReservationStatus());
+        Assert.assertEquals(new BigDecimal(10), previous.getValue());
+        Assert.assertNull(previous.getRefundValue());
+        Mockito.verify(reservationRepository, Mockito.never()).save(ArgumentMatchers.any());
+        Mockito.verify(service, Mockito.never()).getRefundValue(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void rescheduleComputesTheRefundOnce() {
+        Reservation previous = this.previousReservation();
+        Mockito.when(scheduleRepository.findForBookingByIdIn(Collections.singletonList(7L)))
+                .thenReturn(Collections.singletonList(schedule(7L)));
+        Mockito.when(reservationRepository.saveAll(ArgumentMatchers.<List<Reservation>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(reservationMapper.map(ArgumentMatchers.any(Reservation.class))).thenReturn(new ReservationDTO());
+        ReservationService service = Mockito.spy(reservationService);
+
+        service.rescheduleReservation(1L, 7L);
+
+        Mockito.verify(service, Mockito.times(1)).getRefundValue(previous);
+        Assert.assertEquals(ReservationStatus.RESCHEDULED, previous.getReservationStatus());
+        Assert.assertEquals(new BigDecimal(10), previous.getRefundValue());
+        Assert.assertEquals(0, previous.getValue().signum());
+    }
+
+    private Reservation previousReservation() {
+        Guest guest = new Guest();
+        guest.setId(3L);
+        Reservation previous = Reservation.builder()
+                .guest(guest)
+                .schedule(schedule(5L))
+                .value(new BigDecimal(10))
+                .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                .build();
+        Mockito.when(reservationRepository.findScheduleIdById(1L)).thenReturn(Optional.of(5L));
+        Mockito.when(reservationRepository.findWithGuestAndScheduleById(1L)).thenReturn(Optional.of(previous));
+        Mockito.when(guestRepository.findById(3L)).thenReturn(Optional.of(guest));
+        Mockito.when(bookingEngine.execute(ArgumentMatchers.<List<Long>>any(), ArgumentMatchers.<Supplier<ReservationDTO>>any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ReservationDTO>>getArgument(1).get());
+        return previous;
+    }
+
+    private static Schedule schedule(Long id) {
+        Schedule schedule = new Schedule();
+        schedule.setId(id);
+        schedule.setStartDateTime(LocalDateTime.now().plusDays(2).truncatedTo(ChronoUnit.HOURS));
+        schedule.setEndDateTime(schedule.getStartDateTime().plusHours(1));
+        return schedule;
+    }
+}
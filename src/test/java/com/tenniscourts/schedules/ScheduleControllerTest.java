@@ -0,0 +1,240 @@
+package com.tenniscourts.schedules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.tenniscourts.config.serialization.SmileConfig;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationMapper;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.reservations.ReservationView;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schedule-controller-test",
+        "tenniscourts.settlement.cron=-",
+        "tenniscourts.archive.cron=-"})
+@AutoConfigureMockMvc
+public class ScheduleControllerTest {
+
+    private static final Long TENNIS_COURT_ID = 1L;
+
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2031, 3, 1, 0, 0);
+
+    private static Long firstScheduleId;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ScheduleService scheduleService;
+
+    @Autowired
+    ReservationMapper reservationMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void addSchedules() {
+        if (firstScheduleId != null) {
+            return;
+        }
+        firstScheduleId = this.addSchedule(FIRST_DAY);
+        this.addSchedule(FIRST_DAY.plusDays(2).withHour(23));
+        this.addSchedule(FIRST_DAY.plusDays(3));
+    }
+
+    @Test
+    public void listsSchedulesOfBothDatesIncluded() throws Exception {
+        this.getAsync("/schedules?startDate=2031-03-01&endDate=2031-03-03")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].startDateTime").value("2031-03-01T00:00"))
+                .andExpect(jsonPath("$[1].startDateTime").value("2031-03-03T23:00"));
+
+        this.getAsync("/schedules?startDate=2031-03-04&endDate=2031-03-04")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].startDateTime").value("2031-03-04T00:00"));
+    }
+
+    @Test
+    public void acceptsOnlySchedulesStartingOnTheHour() {
+        try {
+            this.addSchedule(FIRST_DAY.plusDays(5).withHour(10).withMinute(30));
+            Assert.fail("Expected a schedule at 10:30 to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // slots are hourly
+        }
+
+        try {
+            scheduleService.addRecurringSchedules(CreateRecurringScheduleRequestDTO.builder()
+                    .tennisCourtIds(Collections.singletonList(TENNIS_COURT_ID))
+                    .startDate(FIRST_DAY.toLocalDate().plusDays(5))
+                    .endDate(FIRST_DAY.toLocalDate().plusDays(5))
+                    .daysOfWeek(EnumSet.allOf(DayOfWeek.class))
+                    .openingTime(LocalTime.of(7, 30))
+                    .closingTime(LocalTime.of(10, 0))
+                    .build());
+            Assert.fail("Expected an opening time of 07:30 to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // slots are hourly
+        }
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void keepsOneSchedulePerCourtAndStart() {
+        jdbcTemplate.update("insert into schedule (id, tennis_court_id, start_date_time, end_date_time, version)"
+                        + " select next value for schedule_seq, tennis_court_id, start_date_time, end_date_time, 0 from schedule where id = ?",
+                firstScheduleId);
+    }
+
+    @Test
+    public void listsAtMostNinetyTwoDays() throws Exception {
+        this.getAsync("/schedules?startDate=2031-03-01&endDate=2031-05-31")
+                .andExpect(status().isOk());
+
+        this.getAsync("/schedules?startDate=2031-03-01&endDate=2031-06-01")
+                .andExpect(status().isBadRequest());
+        this.getAsync("/schedules?startDate=2031-03-02&endDate=2031-03-01")
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void listedScheduleLooksLikeTheScheduleFoundById() throws Exception {
+        String listed = this.getAsync("/schedules?startDate=2031-03-01&endDate=2031-03-01")
+                .andExpect(jsonPath("$[0].tennisCourtId").value(TENNIS_COURT_ID))
+                .andExpect(jsonPath("$[0].tennisCourt.id").value(TENNIS_COURT_ID))
+                .andReturn().getResponse().getContentAsString();
+        String found = this.getAsync("/schedules/" + firstScheduleId)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Assert.assertEquals(objectMapper.readTree(found), objectMapper.readTree(listed).get(0));
+    }
+
+    @Test
+    public void reservationViewMapsLikeTheReservation() {
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(TENNIS_COURT_ID);
+        tennisCourt.setName("Centre Court");
+        Schedule schedule = Schedule.builder()
+                .tennisCourt(tennisCourt)
+                .startDateTime(FIRST_DAY)
+                .endDateTime(FIRST_DAY.plusHours(1))
+                .build();
+        schedule.setId(7L);
+        Guest guest = new Guest();
+        guest.setId(3L);
+        Reservation reservation = Reservation.builder()
+                .guest(guest)
+                .schedule(schedule)
+                .reservationStatus(ReservationStatus.CANCELLED)
+                .value(BigDecimal.ZERO)
+                .refundValue(BigDecimal.TEN)
+                .build();
+        reservation.setId(11L);
+        ReservationView view = new ReservationView(11L, ReservationStatus.CANCELLED, BigDecimal.ZERO, BigDecimal.TEN, null,
+                3L, 7L, FIRST_DAY, FIRST_DAY.plusHours(1), TENNIS_COURT_ID, "Centre Court");
+
+        Assert.assertEquals(objectMapper.valueToTree(reservationMapper.map(reservation)),
+                objectMapper.valueToTree(reservationMapper.mapView(view)));
+        Assert.assertEquals(TENNIS_COURT_ID, reservationMapper.mapView(view).getSchedule().getTennisCourtId());
+    }
+
+    @Test
+    public void gridListsTheSameSchedulesCompactly() throws Exception {
+        String url = "?startDate=2031-03-01&endDate=2031-03-04";
+        JsonNode listed = objectMapper.readTree(this.getAsync("/schedules" + url).andReturn().getResponse().getContentAsString());
+        ScheduleGridDTO grid = objectMapper.readValue(this.getAsync("/schedules/grid" + url)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), ScheduleGridDTO.class);
+
+        Assert.assertEquals(LocalDate.of(2031, 3, 1), grid.getStartDate());
+        Assert.assertEquals(1, grid.getTennisCourts().size());
+        TennisCourtSlotsDTO tennisCourt = grid.getTennisCourts().get(0);
+        Assert.assertEquals(TENNIS_COURT_ID, tennisCourt.getId());
+        Assert.assertEquals(listed.size(), tennisCourt.getScheduleIds().length);
+        for (int i = 0; i < listed.size(); i++) {
+            Assert.assertEquals(listed.get(i).get("id").asLong(), tennisCourt.getScheduleIds()[i]);
+            Assert.assertEquals(listed.get(i).get("startDateTime").asText(),
+                    grid.getStartDate().atStartOfDay().plusHours(tennisCourt.getStartHours()[i]).toString());
+            Assert.assertEquals(listed.get(i).get("tennisCourt").get("name").asText(), tennisCourt.getName());
+        }
+    }
+
+    @Test
+    public void servesSmileUnderItsOwnETag() throws Exception {
+        String url = "/schedules?startDate=2031-03-01&endDate=2031-03-04";
+        MockHttpServletResponse json = this.getAsync(url)
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse();
+        MockHttpServletResponse smile = this.getAsync(get(url).accept(SmileConfig.SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SmileConfig.SMILE))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse();
+
+        Assert.assertEquals(objectMapper.readTree(json.getContentAsString()),
+                new ObjectMapper(new SmileFactory()).readTree(smile.getContentAsByteArray()));
+        Assert.assertNotEquals(json.getHeader(HttpHeaders.ETAG), smile.getHeader(HttpHeaders.ETAG));
+
+        this.getAsync(get(url).accept(SmileConfig.SMILE).header(HttpHeaders.IF_NONE_MATCH, json.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(url).accept(SmileConfig.SMILE).header(HttpHeaders.IF_NONE_MATCH, smile.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    private Long addSchedule(LocalDateTime startDateTime) {
+        CreateScheduleRequestDTO request = new CreateScheduleRequestDTO();
+        request.setTennisCourtId(TENNIS_COURT_ID);
+        request.setStartDateTime(startDateTime);
+        return scheduleService.addSchedule(TENNIS_COURT_ID, request).getId();
+    }
+
+    private ResultActions getAsync(String url) throws Exception {
+        return this.getAsync(get(url));
+    }
+
+    private ResultActions getAsync(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
@@ -0,0 +1,121 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.reservations.ReservationStatus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SlotAvailabilityIndexTest {
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @InjectMocks
+    SlotAvailabilityIndex slotAvailabilityIndex;
+
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+    @Before
+    public void setUp() {
+        Mockito.when(scheduleRepository.findAllSlots()).thenReturn(Arrays.asList(
+                slot(10L, 1L, tomorrow.atTime(9, 0)),
+                slot(11L, 1L, tomorrow.atTime(10, 0)),
+                slot(12L, 1L, tomorrow.atTime(11, 0))));
+        Mockito.when(scheduleRepository.findIdsWithReservationStatus(ReservationStatus.READY_TO_PLAY))
+                .thenReturn(Collections.singletonList(11L));
+
+        slotAvailabilityIndex.load();
+    }
+
+    @Test
+    public void findFreeSlotsSkipsBookedSlots() {
+        List<FreeSlotDTO> freeSlots = slotAvailabilityIndex.findFreeSlots(1L, tomorrow);
+
+        Assert.assertEquals(2, freeSlots.size());
+        Assert.assertEquals(Long.valueOf(10L), freeSlots.get(0).getScheduleId());
+        Assert.assertEquals(tomorrow.atTime(9, 0), freeSlots.get(0).getStartDateTime());
+        Assert.assertEquals(tomorrow.atTime(10, 0), freeSlots.get(0).getEndDateTime());
+        Assert.assertEquals(Long.valueOf(12L), freeSlots.get(1).getScheduleId());
+    }
+
+    @Test
+    public void markBookedAndMarkFreeUpdateTheSlot() {
+        slotAvailabilityIndex.markBooked(10L);
+        Assert.assertFalse(slotAvailabilityIndex.isFree(10L));
+
+        slotAvailabilityIndex.markFree(11L);
+        Assert.assertTrue(slotAvailabilityIndex.isFree(11L));
+    }
+
+    @Test
+    public void registerScheduleAddsFreeSlot() {
+        slotAvailabilityIndex.registerSchedule(13L, 2L, tomorrow.atTime(15, 0));
+
+        Assert.assertTrue(slotAvailabilityIndex.isFree(13L));
+        Assert.assertEquals(3, slotAvailabilityIndex.findFreeSlots(null, tomorrow).size());
+    }
+
+    @Test
+    public void removeSchedulesFreesTheHourForANewSchedule() {
+        slotAvailabilityIndex.removeSchedules(Arrays.asList(10L, 11L));
+
+        Assert.assertFalse(slotAvailabilityIndex.isFree(10L));
+        Assert.assertEquals(1, slotAvailabilityIndex.findFreeSlots(1L, tomorrow).size());
+
+        slotAvailabilityIndex.registerSchedule(14L, 1L, tomorrow.atTime(10, 0));
+        Assert.assertTrue(slotAvailabilityIndex.isFree(14L));
+    }
+
+    @Test
+    public void listenersAreToldOnlyAboutSlotsThatChanged() {
+        List<SlotChangeDTO> changes = new ArrayList<>();
+        slotAvailabilityIndex.addListener(changes::add);
+
+        slotAvailabilityIndex.markBooked(10L);
+        slotAvailabilityIndex.markBooked(10L);
+        slotAvailabilityIndex.markFree(12L);
+
+        Assert.assertEquals(1, changes.size());
+        Assert.assertEquals(Long.valueOf(10L), changes.get(0).getScheduleId());
+        Assert.assertEquals(tomorrow.atTime(9, 0), changes.get(0).getStartDateTime());
+        Assert.assertFalse(changes.get(0).isFree());
+    }
+
+    @Test
+    public void unknownScheduleIsNotFree() {
+        Assert.assertFalse(slotAvailabilityIndex.isFree(99L));
+        Assert.assertTrue(slotAvailabilityIndex.findFreeSlots(3L, tomorrow).isEmpty());
+    }
+
+    private ScheduleSlotView slot(Long id, Long tennisCourtId, LocalDateTime startDateTime) {
+        return new ScheduleSlotView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getTennisCourtId() {
+                return tennisCourtId;
+            }
+
+            @Override
+            public LocalDateTime getStartDateTime() {
+                return startDateTime;
+            }
+        };
+    }
+}
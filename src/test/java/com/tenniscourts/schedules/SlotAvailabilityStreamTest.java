@@ -0,0 +1,94 @@
+package com.tenniscourts.schedules;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class SlotAvailabilityStreamTest {
+
+    private final Deque<SseEmitter> emitters = new ArrayDeque<>();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final SlotAvailabilityStream stream = new SlotAvailabilityStream(Mockito.mock(SlotAvailabilityIndex.class),
+            10, 16, 1, Duration.ofMinutes(1), Duration.ofMillis(50)) {
+        @Override
+        SseEmitter newEmitter(long timeoutMillis) {
+            return emitters.removeFirst();
+        }
+    };
+
+    @After
+    public void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    public void dropsASubscriberThatStoppedReadingWithoutHoldingUpTheOthers() throws Exception {
+        StubEmitter stalled = new StubEmitter(new CountDownLatch(1));
+        StubEmitter reading = new StubEmitter(new CountDownLatch(0));
+        emitters.add(stalled);
+        emitters.add(reading);
+        stream.bindTo(registry);
+
+        stream.subscribe(null, LocalDate.now(), LocalDate.now());
+        Assert.assertTrue(stalled.sending.await(1, TimeUnit.SECONDS));
+        stream.subscribe(null, LocalDate.now(), LocalDate.now());
+        // the only writer is stuck on the first subscriber
+        Assert.assertNull(reading.sent.poll(200, TimeUnit.MILLISECONDS));
+
+        stream.abortStalledSends();
+
+        Assert.assertNotNull(reading.sent.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, registry.get("tenniscourts.sse.subscribers").gauge().value(), 0);
+        Assert.assertEquals(1, registry.get("tenniscourts.sse.stalls").functionCounter().count(), 0);
+
+        stalled.release.countDown();
+        Assert.assertTrue(stalled.completed.await(1, TimeUnit.SECONDS));
+    }
+
+    private static class StubEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+
+        StubEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            sent.add(builder);
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            super.completeWithError(ex);
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.tenniscourts.settlements;
+
+import com.tenniscourts.exceptions.BusinessException;
+import com.tenniscourts.outbox.ReservationEvent;
+import com.tenniscourts.outbox.ReservationEventPublisher;
+import com.tenniscourts.outbox.ReservationEventType;
+import com.tenniscourts.reservations.ReservationService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class SettlementJobTest {
+
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+    private final SettlementCheckpointRepository checkpointRepository = Mockito.mock(SettlementCheckpointRepository.class);
+
+    private final ReservationService reservationService = Mockito.mock(ReservationService.class);
+
+    private final ReservationEventPublisher reservationEventPublisher = Mockito.mock(ReservationEventPublisher.class);
+
+    private final List<ReservationEvent> published = new ArrayList<>();
+
+    private final List<Object> settledIds = new ArrayList<>();
+
+    private final Set<Long> checkedIn = new HashSet<>();
+
+    private SettlementJob settlementJob;
+
+    @Before
+    public void setUp() {
+        Mockito.when(transactionManager.getTransaction(ArgumentMatchers.any())).thenReturn(new SimpleTransactionStatus());
+        Mockito.when(checkpointRepository.findFirstByCompletedFalseOrderByIdDesc()).thenReturn(Optional.empty());
+        Mockito.when(checkpointRepository.save(ArgumentMatchers.any())).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(jdbcTemplate.batchUpdate(ArgumentMatchers.anyString(), ArgumentMatchers.<List<Object[]>>any()))
+                .thenAnswer(invocation -> {
+                    List<Object[]> updates = invocation.getArgument(1);
+                    updates.forEach(update -> settledIds.add(update[4]));
+                    int[] updated = new int[updates.size()];
+                    Arrays.fill(updated, 1);
+                    return updated;
+                });
+
+        Mockito.doAnswer(invocation -> published.addAll(invocation.getArgument(0)))
+                .when(reservationEventPublisher).publishAll(ArgumentMatchers.any());
+
+        settlementJob = new SettlementJob(jdbcTemplate, transactionManager, checkpointRepository, reservationService,
+                reservationEventPublisher, 2, 100);
+    }
+
+    @After
+    public void tearDown() {
+        settlementJob.shutdown();
+    }
+
+    @Test
+    public void leavesReservationsWithChangesMissingInTheDatabaseAlone() throws Exception {
+        this.pastDue(1L, 2L);
+        // the check-in of reservation 1 is still on its way to the database
+        Mockito.when(reservationService.isChangePending(1L)).thenReturn(true);
+
+        SettlementReportDTO report = settlementJob.run();
+
+        Assert.assertEquals(1, report.getNoShows());
+        Assert.assertEquals(1, report.getSkipped());
+        Assert.assertEquals(Collections.singletonList(2L), settledIds);
+        Mockito.verify(reservationService).awaitChangesInDatabase();
+    }
+
+    @Test
+    public void publishesWhatEveryReservationWasSettledAs() throws Exception {
+        checkedIn.add(1L);
+        this.pastDue(1L, 2L);
+
+        settlementJob.run();
+
+        published.sort(Comparator.comparing(ReservationEvent::getReservationId));
+        Assert.assertEquals(Arrays.asList(ReservationEventType.PLAYED, ReservationEventType.NO_SHOW),
+                published.stream().map(ReservationEvent::getEventType).collect(Collectors.toList()));
+        Assert.assertEquals(new BigDecimal(10), published.get(0).getRefundValue());
+        Assert.assertEquals(new BigDecimal(10), published.get(1).getValue());
+        Assert.assertEquals(Long.valueOf(102L), published.get(1).getScheduleId());
+    }
+
+    @Test
+    public void settlesNothingUntilTheDatabaseHasCaughtUp() {
+        Mockito.doThrow(new BusinessException("Reservation changes are still being copied into the database."))
+                .when(reservationService).awaitChangesInDatabase();
+
+        try {
+            settlementJob.run();
+            Assert.fail("Expected the run to be refused");
+        } catch (BusinessException expected) {
+            // the nightly run logs and skips
+        }
+
+        Mockito.verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void pastDue(Long... reservationIds) throws Exception {
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(rs.getObject(3)).thenReturn(1L);
+        Mockito.when(rs.getLong(3)).thenReturn(1L);
+        Mockito.when(rs.getBigDecimal(4)).thenReturn(new BigDecimal(10));
+        Mockito.when(jdbcTemplate.query(ArgumentMatchers.anyString(), ArgumentMatchers.<RowMapper<Object>>any(),
+                ArgumentMatchers.<Object>any())).thenAnswer(invocation -> {
+            Object lastReservationId = invocation.getArguments()[invocation.getArguments().length - 2];
+            if (!Long.valueOf(0L).equals(lastReservationId)) {
+                return Collections.emptyList();
+            }
+            RowMapper<?> rowMapper = invocation.getArgument(1);
+            Object[] rows = new Object[reservationIds.length];
+            for (int i = 0; i < reservationIds.length; i++) {
+                Mockito.when(rs.getLong(1)).thenReturn(reservationIds[i]);
+                Mockito.when(rs.getLong(2)).thenReturn(100 + reservationIds[i]);
+                Mockito.when(rs.getTimestamp(5)).thenReturn(checkedIn.contains(reservationIds[i]) ? new Timestamp(0) : null);
+                rows[i] = rowMapper.mapRow(rs, i);
+            }
+            return Arrays.asList(rows);
+        });
+    }
+}